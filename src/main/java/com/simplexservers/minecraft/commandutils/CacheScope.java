@@ -0,0 +1,23 @@
+package com.simplexservers.minecraft.commandutils;
+
+/**
+ * Which invocations of a cached command share the cached messages.
+ * Invocations only ever share messages when they have the same CommandMethod and parsed arguments.
+ *
+ * @author Zach Abney
+ */
+public enum CacheScope {
+	/**
+	 * Every invoker shares the cached messages.
+	 */
+	GLOBAL,
+	/**
+	 * Each invoker has its own cached messages, invokers are told apart by their name.
+	 */
+	INVOKER,
+	/**
+	 * Invokers with the same permissions share the cached messages.
+	 * Invokers that don't compile their permissions have their own cached messages, as with {@link #INVOKER}.
+	 */
+	PERMISSIONS
+}
@@ -0,0 +1,74 @@
+package com.simplexservers.minecraft.commandutils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An invoker that passes every message on to the sender while recording it,
+ * used to replay the messages of an invocation to other invocations.
+ * <p>
+ * Only commands that receive the CommandInvoker itself send their messages through it,
+ * see {@link CommandMethod#receivesCommandInvoker()}.
+ * </p>
+ *
+ * @author Zach Abney
+ */
+class CapturingInvoker extends CommandInvoker<Object> {
+
+	/**
+	 * The sender of the command.
+	 */
+	private final CommandInvoker<?> sender;
+	/**
+	 * The messages sent to the sender, in order.
+	 */
+	private final List<String> messages = new ArrayList<>(4);
+
+	/**
+	 * Constructs a new CapturingInvoker for the same native invoker as the sender.
+	 *
+	 * @param sender The sender of the command.
+	 */
+	CapturingInvoker(CommandInvoker<?> sender) {
+		super(sender.getNativeInvoker());
+		this.sender = sender;
+	}
+
+	/**
+	 * Gets the messages sent so far.
+	 *
+	 * @return A copy of the messages sent, in order.
+	 */
+	synchronized String[] getMessages() {
+		return messages.toArray(new String[0]);
+	}
+
+	@Override
+	public String getName() {
+		return sender.getName();
+	}
+
+	@Override
+	public void sendMessage(String message) {
+		synchronized (this) {
+			messages.add(message);
+		}
+		sender.sendMessage(message);
+	}
+
+	@Override
+	public boolean hasPermission(String perm) {
+		return sender.hasPermission(perm);
+	}
+
+	@Override
+	public boolean hasPermission(PermissionNode node) {
+		return sender.hasPermission(node);
+	}
+
+	@Override
+	public boolean isPlayer() {
+		return sender.isPlayer();
+	}
+
+}
@@ -0,0 +1,310 @@
+package com.simplexservers.minecraft.commandutils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An asynchronous audit log that writes every dispatched command to a rolling file.
+ * <p>
+ * Dispatching threads copy each record into a preallocated lock-free RecordRing.
+ * Its background writer drains the records in batches and writes them through a FileChannel,
+ * one tab separated line per command:
+ * {@code timestamp invoker baseCommand subcommand arguments outcome durationMicros}.
+ * When the file reaches its maximum size it is rolled over to {@code <file>.1}, {@code <file>.2}, etc.
+ * </p>
+ *
+ * @author Zach Abney
+ */
+public class CommandAuditLog implements CommandAuditSink, Closeable {
+
+	/**
+	 * What to do with a record when the ring buffer is full.
+	 */
+	public enum OverflowPolicy {
+		/**
+		 * Drop the record and count it as dropped. The dispatching thread never waits.
+		 */
+		DROP,
+		/**
+		 * Wait for the writer to make room. No record is lost but the dispatching thread may stall.
+		 * Records are dropped instead if the writer has stopped.
+		 */
+		BLOCK
+	}
+
+	/**
+	 * The size of the batch buffer records are encoded into before they're written.
+	 */
+	private static final int BATCH_BUFFER_SIZE = 64 * 1024;
+	/**
+	 * The ring buffer the records are copied into and drained from.
+	 */
+	private final RecordRing<AuditRecord> ring;
+
+	/**
+	 * The file the audit log is written to.
+	 */
+	private final Path file;
+	/**
+	 * The size the file may reach before it is rolled over.
+	 */
+	private final long maxFileSize;
+	/**
+	 * The amount of rolled over files to keep.
+	 */
+	private final int maxRolledFiles;
+	/**
+	 * The channel to the current file.
+	 */
+	private FileChannel channel;
+	/**
+	 * The size of the current file as of the last write, used to keep batches from growing it past its maximum size.
+	 */
+	private long fileSize;
+	/**
+	 * The buffer records are batched in before they're written.
+	 */
+	private final ByteBuffer batch = ByteBuffer.allocateDirect(BATCH_BUFFER_SIZE);
+	/**
+	 * The builder lines are formatted in, reused by the writer.
+	 */
+	private final StringBuilder line = new StringBuilder(256);
+
+	/**
+	 * Constructs a new CommandAuditLog and starts its writer.
+	 *
+	 * @param file The file the audit log is written to.
+	 * @param capacity The amount of records the ring buffer holds, rounded up to a power of two.
+	 * @param overflowPolicy What to do with a record when the ring buffer is full.
+	 * @param maxFileSize The size the file may reach before it is rolled over.
+	 * @param maxRolledFiles The amount of rolled over files to keep.
+	 * @throws IOException If the file can't be opened.
+	 */
+	public CommandAuditLog(Path file, int capacity, OverflowPolicy overflowPolicy, long maxFileSize, int maxRolledFiles) throws IOException {
+		this.ring = new RecordRing<>("CommandAuditLog Writer", capacity, overflowPolicy == OverflowPolicy.BLOCK, AuditRecord::new,
+				new RecordRing.Drain<AuditRecord>() {
+					@Override
+					public void write(AuditRecord record) {
+						writeRecord(record);
+					}
+
+					@Override
+					public void flush() {
+						flushBatch();
+					}
+				});
+		this.file = file;
+		this.maxFileSize = maxFileSize;
+		this.maxRolledFiles = maxRolledFiles;
+		this.channel = openChannel();
+		this.fileSize = channel.size();
+		ring.start();
+	}
+
+	/**
+	 * Gets the amount of records dropped because the ring buffer was full.
+	 *
+	 * @return The amount of dropped records.
+	 */
+	public long getDroppedCount() {
+		return ring.getDroppedCount();
+	}
+
+	/**
+	 * Copies the record of a dispatched command into the ring buffer.
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void commandDispatched(CommandInvoker invoker, String baseCommand, String subcommand, String[] args, CommandOutcome outcome, long durationNanos) {
+		AuditRecord record = ring.claim();
+		if (record == null) return;
+
+		record.timestamp = System.currentTimeMillis();
+		record.invoker = invoker.getName();
+		record.baseCommand = baseCommand;
+		record.subcommand = subcommand;
+		record.args = args;
+		record.outcome = outcome;
+		record.durationNanos = durationNanos;
+		ring.publish(record);
+	}
+
+	/**
+	 * Stops the writer after it has written every record in the ring buffer, then closes the file.
+	 *
+	 * @throws IOException If the file can't be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		ring.close();
+		channel.close();
+	}
+
+	/**
+	 * Formats the record and adds it to the batch, writing the batch first if the record doesn't fit.
+	 *
+	 * @param record The record to write.
+	 */
+	private void writeRecord(AuditRecord record) {
+		formatLine(record);
+		byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+		// Write the batch before it grows the file past its maximum size, so the file is rolled over in time.
+		if (bytes.length > batch.remaining() || fileSize + batch.position() + bytes.length > maxFileSize) flushBatch();
+		if (bytes.length > batch.capacity()) {
+			write(ByteBuffer.wrap(bytes));
+		} else {
+			batch.put(bytes);
+		}
+	}
+
+	/**
+	 * Formats the record into the reusable line builder.
+	 *
+	 * @param record The record to format.
+	 */
+	private void formatLine(AuditRecord record) {
+		line.setLength(0);
+		line.append(record.timestamp).append('\t');
+		appendField(record.invoker).append('\t');
+		appendField(record.baseCommand).append('\t');
+		appendField(record.subcommand).append('\t');
+		if (record.args != null) {
+			for (int i = 0; i < record.args.length; i++) {
+				if (i != 0) line.append(' ');
+				appendField(record.args[i]);
+			}
+		}
+		line.append('\t').append(record.outcome).append('\t').append(record.durationNanos / 1000).append('\n');
+	}
+
+	/**
+	 * Appends a field to the line builder, replacing any tabs or line breaks with spaces.
+	 *
+	 * @param field The field to append, may be null.
+	 * @return The line builder.
+	 */
+	private StringBuilder appendField(String field) {
+		if (field == null) return line;
+		for (int i = 0; i < field.length(); i++) {
+			char c = field.charAt(i);
+			line.append(c == '\t' || c == '\n' || c == '\r' ? ' ' : c);
+		}
+		return line;
+	}
+
+	/**
+	 * Writes the batched records to the file.
+	 */
+	private void flushBatch() {
+		if (batch.position() == 0) return;
+		batch.flip();
+		write(batch);
+		batch.clear();
+	}
+
+	/**
+	 * Writes the buffer to the file, rolling it over first if it would grow too large.
+	 * If the file can't be rolled over the buffer is appended to it anyway.
+	 *
+	 * @param buffer The buffer to write.
+	 */
+	private void write(ByteBuffer buffer) {
+		try {
+			if (!channel.isOpen()) channel = openChannel();
+			if (channel.size() != 0 && channel.size() + buffer.remaining() > maxFileSize) {
+				try {
+					rollOver();
+				} catch (IOException e) {
+					// Keep appending to the current file rather than losing the records.
+					Logger.getGlobal().log(Level.SEVERE, "Unable to roll over the command audit log " + file, e);
+					if (!channel.isOpen()) channel = openChannel();
+				}
+			}
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			fileSize = channel.size();
+		} catch (IOException e) {
+			Logger.getGlobal().log(Level.SEVERE, "Unable to write to the command audit log " + file, e);
+			buffer.position(buffer.limit());
+		}
+	}
+
+	/**
+	 * Rolls the current file over to {@code <file>.1}, shifting older files up, and opens a new file.
+	 * The file is reopened even if the files can't be moved, so records keep being appended to it.
+	 *
+	 * @throws IOException If the files can't be moved or the new file can't be opened.
+	 */
+	private void rollOver() throws IOException {
+		channel.close();
+		try {
+			if (maxRolledFiles > 0) {
+				Files.deleteIfExists(rolledFile(maxRolledFiles));
+				for (int i = maxRolledFiles - 1; i >= 1; i--) {
+					Path rolled = rolledFile(i);
+					if (Files.exists(rolled)) {
+						Files.move(rolled, rolledFile(i + 1), StandardCopyOption.REPLACE_EXISTING);
+					}
+				}
+				Files.move(file, rolledFile(1), StandardCopyOption.REPLACE_EXISTING);
+			} else {
+				Files.delete(file);
+			}
+		} finally {
+			channel = openChannel();
+		}
+	}
+
+	/**
+	 * Gets the path of a rolled over file.
+	 *
+	 * @param index The index of the rolled over file, 1 being the most recent.
+	 * @return The path of the rolled over file.
+	 */
+	private Path rolledFile(int index) {
+		return file.resolveSibling(file.getFileName() + "." + index);
+	}
+
+	/**
+	 * Opens the file for appending.
+	 *
+	 * @return The channel to the file.
+	 * @throws IOException If the file can't be opened.
+	 */
+	private FileChannel openChannel() throws IOException {
+		return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+	}
+
+	/**
+	 * A preallocated slot in the ring buffer.
+	 */
+	private static class AuditRecord extends RecordRing.Slot {
+
+		private long timestamp;
+		private String invoker;
+		private String baseCommand;
+		private String subcommand;
+		private String[] args;
+		private CommandOutcome outcome;
+		private long durationNanos;
+
+		@Override
+		void clear() {
+			invoker = null;
+			args = null;
+		}
+
+	}
+
+}
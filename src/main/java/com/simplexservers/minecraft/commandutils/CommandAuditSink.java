@@ -0,0 +1,26 @@
+package com.simplexservers.minecraft.commandutils;
+
+/**
+ * A sink that receives a record of every command dispatched by a CommandManager.
+ * <p>
+ * Note: This is called on the thread dispatching the command, usually the main thread,
+ * so implementations should hand the record off rather than doing any I/O.
+ * </p>
+ *
+ * @author Zach Abney
+ */
+public interface CommandAuditSink {
+
+	/**
+	 * Called when a command has been dispatched.
+	 *
+	 * @param invoker The invoker of the command.
+	 * @param baseCommand The base of the command.
+	 * @param subcommand The matched subcommand, or null if no command was matched.
+	 * @param args The raw arguments entered after the subcommand, or after the base command if no command was matched.
+	 * @param outcome The outcome of the command.
+	 * @param durationNanos The time spent matching or executing the command, in nanoseconds.
+	 */
+	void commandDispatched(CommandInvoker invoker, String baseCommand, String subcommand, String[] args, CommandOutcome outcome, long durationNanos);
+
+}
@@ -0,0 +1,317 @@
+package com.simplexservers.minecraft.commandutils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Builds a functional command and registers it with a CommandManager, for commands generated at runtime
+ * such as config driven or scripted commands.
+ * <p>
+ * The parser of each argument is bound when it's added, and the command body is a CommandExecutor
+ * called with the CommandInvoker and the parsed arguments, so no reflection is used to register
+ * or to invoke the command.
+ * </p>
+ * <pre>{@code
+ * manager.command("warp set")
+ *         .description("Sets a warp at your location.")
+ *         .usage("/warp set <name>")
+ *         .permission("warps.admin")
+ *         .argument(String.class)
+ *         .executes((sender, args) -> setWarp(sender, (String) args[0]));
+ * }</pre>
+ *
+ * @author Zach Abney
+ */
+public class CommandBuilder {
+
+	/**
+	 * The CommandManager the command is registered with.
+	 */
+	private final CommandManager manager;
+	/**
+	 * The builder of the command's meta-data.
+	 */
+	private final CommandDescriptor.Builder descriptor;
+	/**
+	 * The index of the argument that expands to many targets, or -1.
+	 */
+	private int fanOutArgument = -1;
+	/**
+	 * The type the native invoker must be an instance of.
+	 */
+	private Class<?> invokerType = Object.class;
+	/**
+	 * The types of the arguments after the invoker.
+	 */
+	private final List<Class<?>> argumentTypes = new ArrayList<>();
+	/**
+	 * The parsers bound to each argument.
+	 */
+	private final List<ParameterTypeParser<?>> parsers = new ArrayList<>();
+	/**
+	 * Whether each argument is passed as a Lazy argument that's parsed on demand.
+	 */
+	private final List<Boolean> lazyArguments = new ArrayList<>();
+	/**
+	 * Whether the command takes the raw String[] arguments.
+	 */
+	private boolean rawArguments = false;
+	/**
+	 * Whether the command has already been registered by this builder.
+	 */
+	private boolean consumed = false;
+
+	/**
+	 * Constructs a new CommandBuilder, use {@link CommandManager#command(String)}.
+	 *
+	 * @param manager The CommandManager the command is registered with.
+	 * @param command The command being built, including any subcommand.
+	 */
+	CommandBuilder(CommandManager manager, String command) {
+		this.manager = manager;
+		this.descriptor = new CommandDescriptor.Builder(command);
+	}
+
+	/**
+	 * Adds aliases for the main command.
+	 *
+	 * @param aliases The aliases to add.
+	 * @return This builder.
+	 */
+	public CommandBuilder aliases(String... aliases) {
+		descriptor.aliases(aliases);
+		return this;
+	}
+
+	/**
+	 * Sets a brief description of the command.
+	 *
+	 * @param description The description of the command.
+	 * @return This builder.
+	 */
+	public CommandBuilder description(String description) {
+		descriptor.description(description);
+		return this;
+	}
+
+	/**
+	 * Sets the valid usage of the command.
+	 *
+	 * @param usage The usage of the command.
+	 * @return This builder.
+	 */
+	public CommandBuilder usage(String usage) {
+		descriptor.usage(usage);
+		return this;
+	}
+
+	/**
+	 * Sets the required permission to be able to execute the command.
+	 *
+	 * @param permission The required permission, empty if none is required.
+	 * @return This builder.
+	 */
+	public CommandBuilder permission(String permission) {
+		descriptor.permission(permission);
+		return this;
+	}
+
+	/**
+	 * Sets the allowed environments that the command can be invoked from.
+	 *
+	 * @param environments The Bit Mask of flags from EnvironmentFlags.
+	 * @return This builder.
+	 */
+	public CommandBuilder environments(int environments) {
+		descriptor.environments(environments);
+		return this;
+	}
+
+	/**
+	 * Sets how an identical invocation is handled while a previous one is still executing.
+	 *
+	 * @param duplicatePolicy The policy for duplicate invocations.
+	 * @return This builder.
+	 */
+	public CommandBuilder duplicates(DuplicatePolicy duplicatePolicy) {
+		descriptor.duplicates(duplicatePolicy);
+		return this;
+	}
+
+	/**
+	 * Adds sample arguments used to warm up the command.
+	 *
+	 * @param samples The sample arguments, each a space separated line of arguments.
+	 * @return This builder.
+	 */
+	public CommandBuilder samples(String... samples) {
+		descriptor.samples(samples);
+		return this;
+	}
+
+	/**
+	 * Sets the index of the parsed argument whose value decides which node the command runs on.
+	 *
+	 * @param routingArgument The index of the routing argument, 0 being the first argument.
+	 * @return This builder.
+	 */
+	public CommandBuilder routingArgument(int routingArgument) {
+		descriptor.routingArgument(routingArgument);
+		return this;
+	}
+
+	/**
+	 * Caches the messages sent by the command and replays them instead of executing it again.
+	 *
+	 * @param cacheTtl The time in milliseconds the messages are cached for.
+	 * @param cacheScope Which invocations share cached messages.
+	 * @return This builder.
+	 */
+	public CommandBuilder cache(long cacheTtl, CacheScope cacheScope) {
+		descriptor.cache(cacheTtl, cacheScope);
+		return this;
+	}
+
+	/**
+	 * Restricts the command to invokers whose native invoker is an instance of the given type.
+	 *
+	 * @param invokerType The type the native invoker must be an instance of.
+	 * @return This builder.
+	 */
+	public CommandBuilder invokerType(Class<?> invokerType) {
+		this.invokerType = invokerType;
+		return this;
+	}
+
+	/**
+	 * Adds an argument parsed by the parser registered for its type.
+	 *
+	 * @param type The type of the argument.
+	 * @param <T> The type of the argument.
+	 * @return This builder.
+	 * @throws IllegalArgumentException If the type is not a supported parameter type.
+	 */
+	public <T> CommandBuilder argument(Class<T> type) {
+		return argument(type, ParameterType.getParser(type));
+	}
+
+	/**
+	 * Adds an argument parsed by the given parser.
+	 *
+	 * @param type The type of the argument.
+	 * @param parser The parser of the argument.
+	 * @param <T> The type of the argument.
+	 * @return This builder.
+	 */
+	public <T> CommandBuilder argument(Class<T> type, ParameterTypeParser<? extends T> parser) {
+		if (rawArguments) throw new IllegalStateException("A command that takes the raw arguments can't take parsed arguments.");
+		argumentTypes.add(type);
+		parsers.add(parser);
+		lazyArguments.add(false);
+		return this;
+	}
+
+	/**
+	 * Adds an argument that's passed as a Lazy argument, parsed by the parser registered for its type
+	 * when the command asks for it.
+	 *
+	 * @param type The type the argument is parsed to.
+	 * @param <T> The type the argument is parsed to.
+	 * @return This builder.
+	 * @throws IllegalArgumentException If the type is not a supported parameter type.
+	 */
+	public <T> CommandBuilder lazyArgument(Class<T> type) {
+		return lazyArgument(type, ParameterType.getParser(type));
+	}
+
+	/**
+	 * Adds an argument that's passed as a Lazy argument, parsed by the given parser when the command asks for it.
+	 *
+	 * @param type The type the argument is parsed to.
+	 * @param parser The parser of the argument.
+	 * @param <T> The type the argument is parsed to.
+	 * @return This builder.
+	 */
+	public <T> CommandBuilder lazyArgument(Class<T> type, ParameterTypeParser<? extends T> parser) {
+		argument(type, parser);
+		lazyArguments.set(lazyArguments.size() - 1, true);
+		return this;
+	}
+
+	/**
+	 * Adds the targets argument, parsed by the target parser registered for its type.
+	 * The command is executed once for each target, with the argument being the target.
+	 *
+	 * @param type The type of each target.
+	 * @param fanOutMode How the command is executed for each target.
+	 * @param <T> The type of each target.
+	 * @return This builder.
+	 */
+	public <T> CommandBuilder targets(Class<T> type, FanOutMode fanOutMode) {
+		return targets(type, input -> ParameterType.parseTargets(input, type), fanOutMode);
+	}
+
+	/**
+	 * Adds the targets argument, parsed by the given parser.
+	 * The command is executed once for each target, with the argument being the target.
+	 *
+	 * @param type The type of each target.
+	 * @param parser The parser expanding the argument to its targets.
+	 * @param fanOutMode How the command is executed for each target.
+	 * @param <T> The type of each target.
+	 * @return This builder.
+	 */
+	public <T> CommandBuilder targets(Class<T> type, ParameterTypeParser<? extends Collection<? extends T>> parser, FanOutMode fanOutMode) {
+		if (fanOutArgument >= 0) throw new IllegalStateException("A command can only have one targets argument.");
+		if (rawArguments) throw new IllegalStateException("A command that takes the raw arguments can't take parsed arguments.");
+		fanOutArgument = argumentTypes.size();
+		descriptor.fanOut(fanOutArgument, fanOutMode);
+		argumentTypes.add(type);
+		parsers.add(parser);
+		lazyArguments.add(false);
+		return this;
+	}
+
+	/**
+	 * Makes the command take the raw String[] arguments instead of parsed arguments.
+	 *
+	 * @return This builder.
+	 */
+	public CommandBuilder rawArguments() {
+		if (!argumentTypes.isEmpty()) throw new IllegalStateException("A command that takes parsed arguments can't take the raw arguments.");
+		rawArguments = true;
+		return this;
+	}
+
+	/**
+	 * Registers the command with the body it executes.
+	 *
+	 * @param body The body called with the CommandInvoker and the parsed arguments,
+	 * or a single String[] of the raw arguments.
+	 * @return The registered CommandMethod.
+	 * @throws IllegalStateException If the CommandManager is locked, or if the builder has already registered its command.
+	 * @throws IllegalArgumentException If the routing argument isn't one of the parsed arguments.
+	 */
+	public CommandMethod executes(CommandExecutor body) {
+		if (consumed) throw new IllegalStateException("The builder has already registered its command.");
+		consumed = true;
+		CommandDescriptor meta = descriptor.build();
+
+		CommandMethod method;
+		if (rawArguments) {
+			method = new CommandMethod(meta, invokerType, new Class<?>[] { String[].class }, new ParameterTypeParser<?>[0], body);
+		} else {
+			boolean[] lazy = new boolean[lazyArguments.size()];
+			for (int i = 0; i < lazy.length; i++) {
+				lazy[i] = lazyArguments.get(i);
+			}
+			method = new CommandMethod(meta, invokerType, argumentTypes.toArray(new Class<?>[0]), parsers.toArray(new ParameterTypeParser<?>[0]),
+					lazy, body);
+		}
+
+		manager.registerCommandMethod(method);
+		return method;
+	}
+
+}
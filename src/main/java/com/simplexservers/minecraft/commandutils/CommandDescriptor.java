@@ -0,0 +1,496 @@
+package com.simplexservers.minecraft.commandutils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The immutable meta-data of a command, compiled once from its CommandProperties
+ * so the dispatch path reads plain fields instead of annotation proxy methods.
+ *
+ * @author Zach Abney
+ */
+public final class CommandDescriptor {
+
+	/**
+	 * The command that the method serves.
+	 */
+	private final String command;
+	/**
+	 * The aliases for the main command.
+	 */
+	private final List<String> aliases;
+	/**
+	 * A brief description of the command.
+	 */
+	private final String description;
+	/**
+	 * The valid usage of the command.
+	 */
+	private final String usage;
+	/**
+	 * The required permission to be able to execute the command, empty if none is required.
+	 */
+	private final String permission;
+	/**
+	 * The interned required permission, or null if none is required.
+	 */
+	private final PermissionNode permissionNode;
+	/**
+	 * The Bit Mask of the allowed environments of the command.
+	 */
+	private final int environments;
+	/**
+	 * How an identical invocation is handled while a previous one is still executing.
+	 */
+	private final DuplicatePolicy duplicatePolicy;
+	/**
+	 * The sample arguments used to warm up the command.
+	 */
+	private final List<String> samples;
+	/**
+	 * The index of the parsed argument whose value decides which node the command runs on, or -1.
+	 */
+	private final int routingArgument;
+	/**
+	 * The time in milliseconds the messages sent by the command are cached for, or 0 if it isn't cached.
+	 */
+	private final long cacheTtl;
+	/**
+	 * Which invocations share cached messages.
+	 */
+	private final CacheScope cacheScope;
+	/**
+	 * The index of the argument that expands to many targets, or -1.
+	 */
+	private final int fanOutArgument;
+	/**
+	 * How the command is executed for each target.
+	 */
+	private final FanOutMode fanOutMode;
+	/**
+	 * The base command of the main command followed by each alias.
+	 */
+	private final String[] baseCommands;
+	/**
+	 * The subcommand of the main command followed by each alias.
+	 */
+	private final String[] subcommands;
+
+	/**
+	 * Constructs a new CommandDescriptor from its builder.
+	 *
+	 * @param builder The builder holding the meta-data of the command.
+	 */
+	private CommandDescriptor(Builder builder) {
+		this.command = builder.command.intern();
+		String[] internedAliases = new String[builder.aliases.size()];
+		for (int i = 0; i < internedAliases.length; i++) {
+			internedAliases[i] = builder.aliases.get(i).intern();
+		}
+		this.aliases = Collections.unmodifiableList(Arrays.asList(internedAliases));
+		this.description = builder.description.intern();
+		this.usage = builder.usage.intern();
+		this.permission = builder.permission.intern();
+		this.permissionNode = permission.isEmpty() ? null : PermissionNode.of(this.permission);
+		this.environments = builder.environments;
+		this.duplicatePolicy = builder.duplicatePolicy;
+		this.samples = Collections.unmodifiableList(new ArrayList<>(builder.samples));
+		this.routingArgument = builder.routingArgument;
+		this.cacheTtl = builder.cacheTtl;
+		this.cacheScope = builder.cacheScope;
+		this.fanOutArgument = builder.fanOutArgument;
+		this.fanOutMode = builder.fanOutMode;
+
+		// Split the main command and each alias into its base command and subcommand.
+		this.baseCommands = new String[internedAliases.length + 1];
+		this.subcommands = new String[internedAliases.length + 1];
+		for (int i = 0; i < baseCommands.length; i++) {
+			String[] commandFragments = (i == 0 ? this.command : internedAliases[i - 1]).split(" ");
+
+			StringBuilder subcommand = new StringBuilder();
+			for (int j = 1; j < commandFragments.length; j++) {
+				if (subcommand.length() != 0) subcommand.append(' ');
+				subcommand.append(commandFragments[j]);
+			}
+
+			baseCommands[i] = commandFragments[0].intern();
+			subcommands[i] = subcommand.toString().intern();
+		}
+	}
+
+	/**
+	 * Compiles the CommandProperties of a method into a CommandDescriptor.
+	 *
+	 * @param properties The CommandProperties annotation of the method.
+	 * @return The compiled CommandDescriptor.
+	 */
+	public static CommandDescriptor of(CommandProperties properties) {
+		return new Builder(properties.command())
+				.aliases(properties.aliases())
+				.description(properties.description())
+				.usage(properties.usage())
+				.permission(properties.permission())
+				.environments(properties.assertEnvironment())
+				.duplicates(properties.duplicates())
+				.samples(properties.samples())
+				.routingArgument(properties.routingArgument())
+				.cache(properties.cacheTtl(), properties.cacheScope())
+				.fanOut(properties.fanOutArgument(), properties.fanOut())
+				.build();
+	}
+
+	/**
+	 * Gets the command that the method serves.
+	 *
+	 * @return The full command the method serves.
+	 */
+	public String getCommand() {
+		return command;
+	}
+
+	/**
+	 * Gets the aliases for the main command.
+	 *
+	 * @return The unmodifiable list of aliases.
+	 */
+	public List<String> getAliases() {
+		return aliases;
+	}
+
+	/**
+	 * Gets a brief description of the command.
+	 *
+	 * @return A description of the command.
+	 */
+	public String getDescription() {
+		return description;
+	}
+
+	/**
+	 * Gets the valid usage of the command.
+	 *
+	 * @return The valid usage of the command.
+	 */
+	public String getUsage() {
+		return usage;
+	}
+
+	/**
+	 * Gets the required permission to be able to execute the command.
+	 *
+	 * @return The required permission, empty if none is required.
+	 */
+	public String getPermission() {
+		return permission;
+	}
+
+	/**
+	 * Gets the interned required permission.
+	 *
+	 * @return The required permission node, or null if none is required.
+	 */
+	public PermissionNode getPermissionNode() {
+		return permissionNode;
+	}
+
+	/**
+	 * Gets the allowed environments that the command can be invoked from.
+	 *
+	 * @return The Bit Mask of the allowed environments.
+	 */
+	public int getEnvironments() {
+		return environments;
+	}
+
+	/**
+	 * Gets how an identical invocation is handled while a previous one is still executing.
+	 *
+	 * @return The policy for duplicate invocations.
+	 */
+	public DuplicatePolicy getDuplicatePolicy() {
+		return duplicatePolicy;
+	}
+
+	/**
+	 * Gets the sample arguments used to warm up the command.
+	 *
+	 * @return The unmodifiable list of sample arguments.
+	 */
+	public List<String> getSamples() {
+		return samples;
+	}
+
+	/**
+	 * Gets the index of the parsed argument whose value decides which node the command runs on.
+	 *
+	 * @return The index of the routing argument, or -1 if the command always runs locally.
+	 */
+	public int getRoutingArgument() {
+		return routingArgument;
+	}
+
+	/**
+	 * Gets the time the messages sent by the command are cached for.
+	 *
+	 * @return The time to live in milliseconds, or 0 if the command isn't cached.
+	 */
+	public long getCacheTtl() {
+		return cacheTtl;
+	}
+
+	/**
+	 * Gets which invocations share cached messages.
+	 *
+	 * @return The scope of the cached messages.
+	 */
+	public CacheScope getCacheScope() {
+		return cacheScope;
+	}
+
+	/**
+	 * Gets the index of the argument that expands to many targets.
+	 *
+	 * @return The index of the targets argument, or -1 if the command has no targets argument.
+	 */
+	public int getFanOutArgument() {
+		return fanOutArgument;
+	}
+
+	/**
+	 * Gets how the command is executed for each target.
+	 *
+	 * @return The fan-out mode of the command.
+	 */
+	public FanOutMode getFanOutMode() {
+		return fanOutMode;
+	}
+
+	/**
+	 * Gets the amount of commands served, the main command and each alias.
+	 *
+	 * @return The amount of commands served.
+	 */
+	public int getCommandCount() {
+		return baseCommands.length;
+	}
+
+	/**
+	 * Gets the base command of a served command.
+	 *
+	 * @param index The index of the served command, 0 being the main command followed by each alias.
+	 * @return The base command.
+	 */
+	public String getBaseCommand(int index) {
+		return baseCommands[index];
+	}
+
+	/**
+	 * Gets the subcommand of a served command.
+	 *
+	 * @param index The index of the served command, 0 being the main command followed by each alias.
+	 * @return The subcommand, empty if the command is just the base command.
+	 */
+	public String getSubcommand(int index) {
+		return subcommands[index];
+	}
+
+	@Override
+	public String toString() {
+		return "CommandDescriptor{command=" + command + ",aliases=" + aliases + ",usage=" + usage + ",permission=" + permission + "}";
+	}
+
+	/**
+	 * Builds a CommandDescriptor by name rather than by position, starting from the defaults of CommandProperties.
+	 */
+	public static class Builder {
+
+		/**
+		 * The command that the method serves.
+		 */
+		private final String command;
+		/**
+		 * The aliases for the main command.
+		 */
+		private final List<String> aliases = new ArrayList<>();
+		/**
+		 * A brief description of the command.
+		 */
+		private String description = "";
+		/**
+		 * The valid usage of the command.
+		 */
+		private String usage = "/<command>";
+		/**
+		 * The required permission to be able to execute the command, empty if none is required.
+		 */
+		private String permission = "";
+		/**
+		 * The Bit Mask of the allowed environments of the command.
+		 */
+		private int environments = EnvironmentFlags.ALL;
+		/**
+		 * How an identical invocation is handled while a previous one is still executing.
+		 */
+		private DuplicatePolicy duplicatePolicy = DuplicatePolicy.ALLOW;
+		/**
+		 * The sample arguments used to warm up the command.
+		 */
+		private final List<String> samples = new ArrayList<>();
+		/**
+		 * The index of the parsed argument whose value decides which node the command runs on, or -1.
+		 */
+		private int routingArgument = -1;
+		/**
+		 * The time in milliseconds the messages sent by the command are cached for, or 0 if it isn't cached.
+		 */
+		private long cacheTtl = 0;
+		/**
+		 * Which invocations share cached messages.
+		 */
+		private CacheScope cacheScope = CacheScope.GLOBAL;
+		/**
+		 * The index of the argument that expands to many targets, or -1.
+		 */
+		private int fanOutArgument = -1;
+		/**
+		 * How the command is executed for each target.
+		 */
+		private FanOutMode fanOutMode = FanOutMode.SERIAL;
+
+		/**
+		 * Constructs a new Builder.
+		 *
+		 * @param command The command that the method serves.
+		 */
+		public Builder(String command) {
+			this.command = command;
+		}
+
+		/**
+		 * Adds aliases for the main command.
+		 *
+		 * @param aliases The aliases to add.
+		 * @return This builder.
+		 */
+		public Builder aliases(String... aliases) {
+			this.aliases.addAll(Arrays.asList(aliases));
+			return this;
+		}
+
+		/**
+		 * Sets a brief description of the command.
+		 *
+		 * @param description The description of the command.
+		 * @return This builder.
+		 */
+		public Builder description(String description) {
+			this.description = description;
+			return this;
+		}
+
+		/**
+		 * Sets the valid usage of the command.
+		 *
+		 * @param usage The usage of the command.
+		 * @return This builder.
+		 */
+		public Builder usage(String usage) {
+			this.usage = usage;
+			return this;
+		}
+
+		/**
+		 * Sets the required permission to be able to execute the command.
+		 *
+		 * @param permission The required permission, empty if none is required.
+		 * @return This builder.
+		 */
+		public Builder permission(String permission) {
+			this.permission = permission;
+			return this;
+		}
+
+		/**
+		 * Sets the allowed environments that the command can be invoked from.
+		 *
+		 * @param environments The Bit Mask of flags from EnvironmentFlags.
+		 * @return This builder.
+		 */
+		public Builder environments(int environments) {
+			this.environments = environments;
+			return this;
+		}
+
+		/**
+		 * Sets how an identical invocation is handled while a previous one is still executing.
+		 *
+		 * @param duplicatePolicy The policy for duplicate invocations.
+		 * @return This builder.
+		 */
+		public Builder duplicates(DuplicatePolicy duplicatePolicy) {
+			this.duplicatePolicy = duplicatePolicy;
+			return this;
+		}
+
+		/**
+		 * Adds sample arguments used to warm up the command.
+		 *
+		 * @param samples The sample arguments, each a space separated line of arguments.
+		 * @return This builder.
+		 */
+		public Builder samples(String... samples) {
+			this.samples.addAll(Arrays.asList(samples));
+			return this;
+		}
+
+		/**
+		 * Sets the index of the parsed argument whose value decides which node the command runs on.
+		 *
+		 * @param routingArgument The index of the routing argument, or -1 if the command always runs locally.
+		 * @return This builder.
+		 */
+		public Builder routingArgument(int routingArgument) {
+			this.routingArgument = routingArgument;
+			return this;
+		}
+
+		/**
+		 * Sets how long the messages sent by the command are cached for and which invocations share them.
+		 *
+		 * @param cacheTtl The time in milliseconds the messages are cached for, or 0 if they aren't cached.
+		 * @param cacheScope Which invocations share cached messages.
+		 * @return This builder.
+		 */
+		public Builder cache(long cacheTtl, CacheScope cacheScope) {
+			this.cacheTtl = cacheTtl;
+			this.cacheScope = cacheScope;
+			return this;
+		}
+
+		/**
+		 * Sets the argument that expands to many targets and how the command is executed for each target.
+		 *
+		 * @param fanOutArgument The index of the targets argument, or -1 if the command has none.
+		 * @param fanOutMode How the command is executed for each target.
+		 * @return This builder.
+		 */
+		public Builder fanOut(int fanOutArgument, FanOutMode fanOutMode) {
+			this.fanOutArgument = fanOutArgument;
+			this.fanOutMode = fanOutMode;
+			return this;
+		}
+
+		/**
+		 * Builds the CommandDescriptor.
+		 *
+		 * @return The new CommandDescriptor.
+		 */
+		public CommandDescriptor build() {
+			return new CommandDescriptor(this);
+		}
+
+	}
+
+}
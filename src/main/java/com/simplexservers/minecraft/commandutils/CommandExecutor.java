@@ -0,0 +1,20 @@
+package com.simplexservers.minecraft.commandutils;
+
+/**
+ * Executes a command for an invoker whose access has already been checked.
+ *
+ * @author Zach Abney
+ */
+@FunctionalInterface
+public interface CommandExecutor {
+
+	/**
+	 * Executes the command.
+	 *
+	 * @param sender The sender of the command.
+	 * @param args The parsed arguments to be passed to the command.
+	 * @throws Exception If there was an issue executing the command.
+	 */
+	void execute(CommandInvoker sender, Object[] args) throws Exception;
+
+}
@@ -0,0 +1,267 @@
+package com.simplexservers.minecraft.commandutils;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+/**
+ * Executes commands with a {@link CommandProperties#fanOutArgument()} once for each of their targets,
+ * then sends the invoker one summary of how many targets succeeded.
+ * <p>
+ * The CommandManager composes the fan-out around commands with a targets argument only. Each target
+ * runs the rest of the interceptor chain with the targets argument replaced by the target, so
+ * interceptors and the command body see a single target. A failing target is logged and counted
+ * without stopping the others. Commands that expand to a single target are executed as usual.
+ * </p>
+ * <p>
+ * A {@link FanOutMode#TICKED} command returns once its first chunk has run and finishes in later ticks,
+ * so it can't be cached or deduplicated, and its dispatch is audited as {@link CommandOutcome#SCHEDULED}.
+ * </p>
+ *
+ * @author Zach Abney
+ */
+public class CommandFanOut implements CommandInterceptor {
+
+	/**
+	 * The default amount of targets run per task by {@link FanOutMode#TICKED} commands.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 16;
+
+	/**
+	 * The pool the targets of {@link FanOutMode#PARALLEL} commands are partitioned across.
+	 */
+	private volatile ForkJoinPool pool = ForkJoinPool.commonPool();
+	/**
+	 * The executor running tasks on the main thread, or null if {@link FanOutMode#TICKED} commands run serially.
+	 */
+	private volatile Executor mainThread;
+	/**
+	 * The amount of targets run per task by {@link FanOutMode#TICKED} commands.
+	 */
+	private volatile int chunkSize = DEFAULT_CHUNK_SIZE;
+
+	/**
+	 * Sets the pool the targets of {@link FanOutMode#PARALLEL} commands are partitioned across.
+	 *
+	 * @param pool The fork-join pool.
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Sets the executor running tasks on the main thread, each task should run in a later tick.
+	 *
+	 * @param mainThread The main thread executor, or null to run {@link FanOutMode#TICKED} commands serially.
+	 */
+	public void setMainThreadExecutor(Executor mainThread) {
+		this.mainThread = mainThread;
+	}
+
+	/**
+	 * Sets the amount of targets run per task by {@link FanOutMode#TICKED} commands.
+	 *
+	 * @param chunkSize The amount of targets per task.
+	 */
+	public void setChunkSize(int chunkSize) {
+		if (chunkSize <= 0) throw new IllegalArgumentException("The chunk size must be positive.");
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Executes the command once for each target of its targets argument.
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void intercept(CommandInvoker sender, CommandMethod method, Object[] args, CommandExecutor next) throws Exception {
+		int index = method.getMeta().getFanOutArgument();
+		if (index < 0 || index >= args.length || !(args[index] instanceof List) || ((List<?>) args[index]).size() <= 1) {
+			if (index >= 0 && index < args.length && args[index] instanceof List) {
+				// A single target runs as a plain command.
+				Object[] targetArgs = args.clone();
+				targetArgs[index] = ((List<?>) args[index]).get(0);
+				next.execute(sender, targetArgs);
+			} else {
+				next.execute(sender, args);
+			}
+			return;
+		}
+
+		FanOut fanOut = new FanOut(sender, method, args, index, next);
+		switch (method.getMeta().getFanOutMode()) {
+			case PARALLEL:
+				try {
+					pool.submit(() -> IntStream.range(0, fanOut.targets.size()).parallel().forEach(fanOut::run)).get();
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof Error) throw (Error) cause;
+					throw (Exception) cause;
+				}
+				fanOut.sendSummary();
+				break;
+			case TICKED:
+				Executor mainThread = this.mainThread;
+				if (mainThread != null) {
+					fanOut.runChunks(0, chunkSize, mainThread);
+				} else {
+					// No main thread executor, run the targets serially.
+					fanOut.runSerially();
+				}
+				break;
+			default:
+				fanOut.runSerially();
+		}
+	}
+
+	/**
+	 * Checks if the command keeps running for its targets in later ticks once it has been intercepted,
+	 * which is the case for {@link FanOutMode#TICKED} commands with more targets than fit in a chunk.
+	 *
+	 * @param method The CommandMethod being executed.
+	 * @param args The parsed arguments with the list of targets.
+	 * @return true if the command continues in later ticks, false if it completes when intercepted.
+	 */
+	boolean spansTicks(CommandMethod method, Object[] args) {
+		int index = method.getMeta().getFanOutArgument();
+		return method.getMeta().getFanOutMode() == FanOutMode.TICKED && mainThread != null
+				&& index >= 0 && index < args.length && args[index] instanceof List && ((List<?>) args[index]).size() > chunkSize;
+	}
+
+	/**
+	 * The execution of a command for each of its targets.
+	 */
+	private static class FanOut {
+
+		/**
+		 * The sender of the command.
+		 */
+		private final CommandInvoker sender;
+		/**
+		 * The CommandMethod being executed.
+		 */
+		private final CommandMethod method;
+		/**
+		 * The parsed arguments with the list of targets.
+		 */
+		private final Object[] args;
+		/**
+		 * The index of the targets argument.
+		 */
+		private final int index;
+		/**
+		 * The rest of the chain, ending with the command itself.
+		 */
+		private final CommandExecutor next;
+		/**
+		 * The targets the command is executed for.
+		 */
+		private final List<?> targets;
+		/**
+		 * The amount of targets the command failed for.
+		 */
+		private final AtomicInteger failed = new AtomicInteger();
+		/**
+		 * The first invalid argument the command parsed on demand, or null if there was none.
+		 */
+		private final AtomicReference<LazyArgumentException> invalidArgument = new AtomicReference<>();
+
+		/**
+		 * Constructs a new FanOut.
+		 *
+		 * @param sender The sender of the command.
+		 * @param method The CommandMethod being executed.
+		 * @param args The parsed arguments with the list of targets.
+		 * @param index The index of the targets argument.
+		 * @param next The rest of the chain, ending with the command itself.
+		 */
+		private FanOut(CommandInvoker sender, CommandMethod method, Object[] args, int index, CommandExecutor next) {
+			this.sender = sender;
+			this.method = method;
+			this.args = args;
+			this.index = index;
+			this.next = next;
+			this.targets = (List<?>) args[index];
+		}
+
+		/**
+		 * Executes the command for a target, logging and counting it if it fails.
+		 * A target that fails on an invalid argument the command parsed on demand is counted without being logged.
+		 *
+		 * @param target The index of the target.
+		 */
+		private void run(int target) {
+			Object[] targetArgs = args.clone();
+			targetArgs[index] = targets.get(target);
+			try {
+				next.execute(sender, targetArgs);
+			} catch (LazyArgumentException e) {
+				// An invalid argument is the invoker's mistake, it's reported once with the summary.
+				invalidArgument.compareAndSet(null, e);
+				failed.incrementAndGet();
+			} catch (Exception e) {
+				Logger.getGlobal().log(Level.SEVERE, "An error occurred while invoking " + method.toString() + " for " + targets.get(target), e);
+				failed.incrementAndGet();
+			}
+		}
+
+		/**
+		 * Executes the command for each target in turn, then sends the summary.
+		 */
+		private void runSerially() {
+			for (int i = 0; i < targets.size(); i++) {
+				run(i);
+			}
+			sendSummary();
+		}
+
+		/**
+		 * Executes the command for a chunk of targets, then schedules the next chunk on the main thread
+		 * or sends the summary once every target has run.
+		 *
+		 * @param from The index of the first target of the chunk.
+		 * @param chunkSize The amount of targets per chunk.
+		 * @param mainThread The main thread executor.
+		 */
+		private void runChunks(int from, int chunkSize, Executor mainThread) {
+			int to = Math.min(from + chunkSize, targets.size());
+			for (int i = from; i < to; i++) {
+				run(i);
+			}
+
+			if (to < targets.size()) {
+				mainThread.execute(() -> runChunks(to, chunkSize, mainThread));
+			} else {
+				sendSummary();
+			}
+		}
+
+		/**
+		 * Sends the sender a summary of how many targets the command succeeded for,
+		 * preceded by the usage if an argument parsed on demand was invalid.
+		 */
+		private void sendSummary() {
+			LazyArgumentException invalidArgument = this.invalidArgument.get();
+			if (invalidArgument != null) {
+				sender.sendMessage(invalidArgument.getDisplayMessage() + "\n§cUsage: " + method.getMeta().getUsage());
+			}
+
+			int failed = this.failed.get();
+			String command = "/" + method.getMeta().getCommand();
+			if (failed == 0) {
+				sender.sendMessage("§a" + command + " was executed for " + targets.size() + " targets.");
+			} else {
+				sender.sendMessage("§e" + command + " was executed for " + (targets.size() - failed) + " of " + targets.size()
+						+ " targets, §c" + failed + " failed§e.");
+			}
+		}
+
+	}
+
+}
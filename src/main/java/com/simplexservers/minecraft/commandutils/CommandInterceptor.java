@@ -0,0 +1,28 @@
+package com.simplexservers.minecraft.commandutils;
+
+/**
+ * A cross-cutting check or behaviour wrapped around the execution of commands, such as
+ * cooldowns, logging or restrictions.
+ * <p>
+ * Interceptors are selected per CommandMethod and composed into a single CommandExecutor
+ * when the method is registered, so commands without interceptors pay nothing.
+ * </p>
+ *
+ * @author Zach Abney
+ */
+@FunctionalInterface
+public interface CommandInterceptor {
+
+	/**
+	 * Intercepts the execution of a command.
+	 * Call {@code next.execute(sender, args)} to continue executing the command, or return without calling it to stop it.
+	 *
+	 * @param sender The sender of the command.
+	 * @param method The CommandMethod being executed.
+	 * @param args The parsed arguments to be passed to the command.
+	 * @param next The rest of the chain, ending with the command itself.
+	 * @throws Exception If there was an issue executing the command.
+	 */
+	void intercept(CommandInvoker sender, CommandMethod method, Object[] args, CommandExecutor next) throws Exception;
+
+}
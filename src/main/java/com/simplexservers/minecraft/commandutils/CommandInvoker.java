@@ -30,6 +30,16 @@ public abstract class CommandInvoker<T> {
 		return nativeInvoker;
 	}
 
+	/**
+	 * Gets a name identifying the invoker, used when logging the commands it invokes.
+	 * Defaults to the string form of the native invoker.
+	 *
+	 * @return The name of the invoker.
+	 */
+	public String getName() {
+		return String.valueOf(nativeInvoker);
+	}
+
 	/**
 	 * Sends a message to the invoker.
 	 *
@@ -45,6 +55,21 @@ public abstract class CommandInvoker<T> {
 	 */
 	public abstract boolean hasPermission(String perm);
 
+	/**
+	 * Checks if the invoker has the given interned permission node.
+	 * Invokers that compile their permissions answer with a bit test.
+	 *
+	 * @param node The permission node to check for.
+	 * @return true if the invoker has the given permission, false otherwise.
+	 */
+	public boolean hasPermission(PermissionNode node) {
+		if (this instanceof PermissionCompilingInvoker) {
+			CompiledPermissions compiled = ((PermissionCompilingInvoker) this).getCompiledPermissions();
+			if (compiled.covers(node)) return compiled.has(node);
+		}
+		return hasPermission(node.getNode());
+	}
+
 	/**
 	 * Checks if the instance of the invoker is a player.
 	 *
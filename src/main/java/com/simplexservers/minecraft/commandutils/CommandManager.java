@@ -1,20 +1,42 @@
 package com.simplexservers.minecraft.commandutils;
 
+import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * A manager for a set of commands, usually for an entire plugin.
+ * <p>
+ * A CommandManager can be locked into an immutable registry and shared by
+ * lightweight overlays that add or hide commands on top of it.
+ * </p>
  *
  * @author Zach Abney
  */
 public class CommandManager {
 
+	public static final String DUPLICATE_COMMAND_MESSAGE = "§cThat command is already being executed, please wait for it to finish.";
+	/**
+	 * The maximum amount of executing invocations tracked for duplicates.
+	 */
+	private static final int MAX_IN_FLIGHT_COMMANDS = 4096;
+	/**
+	 * The maximum amount of invocations whose messages are cached.
+	 */
+	private static final int MAX_CACHED_RESULTS = 1024;
+
 	/**
 	 * The list of commands associated with their base command.
 	 */
@@ -23,6 +45,54 @@ public class CommandManager {
 	 * The registrant responsible for native command registration.
 	 */
 	private CommandRegistrant registrant;
+	/**
+	 * The locked CommandManager this one overlays, or null if it isn't an overlay.
+	 */
+	private final CommandManager parent;
+	/**
+	 * The base commands inherited from the parent that are hidden from this overlay.
+	 */
+	private Set<String> hiddenCommands;
+	/**
+	 * Whether the registry has been locked against further changes.
+	 */
+	private volatile boolean locked = false;
+	/**
+	 * The version of the registry, incremented whenever a command is registered or hidden.
+	 */
+	private volatile int version = 0;
+	/**
+	 * The cached command metas, or null if they need to be collected.
+	 */
+	private volatile Collection<List<CommandDescriptor>> commandMetas;
+	/**
+	 * The sink that receives a record of every dispatched command, or null if commands aren't audited.
+	 */
+	private volatile CommandAuditSink auditSink;
+	/**
+	 * The recorder capturing every command entered, or null if traffic isn't recorded.
+	 */
+	private volatile CommandTrafficRecorder trafficRecorder;
+	/**
+	 * The router forwarding commands to the node that owns them, or null if every command runs locally.
+	 */
+	private volatile CommandRouter router;
+	/**
+	 * The executing invocations of commands that don't allow duplicates.
+	 */
+	private final InFlightCommands inFlightCommands = new InFlightCommands(MAX_IN_FLIGHT_COMMANDS);
+	/**
+	 * The interceptors and the selectors of the CommandMethods they apply to, outermost first.
+	 */
+	private final List<SelectedInterceptor> interceptors;
+	/**
+	 * The cache of the messages sent by cached commands, shared with overlays.
+	 */
+	private final CommandResultCache resultCache;
+	/**
+	 * The fan-out of commands with a targets argument, shared with overlays.
+	 */
+	private final CommandFanOut fanOut;
 
 	/**
 	 * Constructs a new CommandManager without a registrant.
@@ -37,50 +107,272 @@ public class CommandManager {
 	 * @param registrant The registrant responsible for native command registration.
 	 */
 	public CommandManager(CommandRegistrant registrant) {
+		this(null, registrant);
+	}
+
+	/**
+	 * Constructs a new CommandManager that overlays the given locked CommandManager.
+	 *
+	 * @param parent The locked CommandManager to fall through to, or null if there is none.
+	 * @param registrant The registrant responsible for native command registration.
+	 */
+	private CommandManager(CommandManager parent, CommandRegistrant registrant) {
+		this.parent = parent;
 		this.registrant = registrant;
+		if (parent != null) {
+			this.interceptors = new ArrayList<>(parent.interceptors);
+			this.resultCache = parent.resultCache;
+			this.fanOut = parent.fanOut;
+		} else {
+			// The fan-out is the outermost interceptor, so every later interceptor sees a single target.
+			this.interceptors = new ArrayList<>();
+			this.fanOut = new CommandFanOut();
+			interceptors.add(new SelectedInterceptor(fanOut, method -> method.getMeta().getFanOutArgument() >= 0));
+			// The result cache isn't in the list, it's always composed innermost.
+			this.resultCache = new CommandResultCache(MAX_CACHED_RESULTS);
+		}
+	}
+
+	/**
+	 * Locks the registry so no further commands can be registered or hidden.
+	 * A locked CommandManager is safe to share between threads and overlays.
+	 * <p>
+	 * The registry is published through the volatile lock flag, which every dispatch reads before
+	 * looking up a command, so the registrations made before locking are visible to any thread
+	 * dispatching afterwards. An unlocked CommandManager must be confined to the thread registering
+	 * its commands.
+	 * </p>
+	 *
+	 * @return This CommandManager.
+	 */
+	public CommandManager lock() {
+		locked = true;
+		return this;
+	}
+
+	/**
+	 * Checks if the registry has been locked against further changes.
+	 *
+	 * @return true if the registry is locked, false otherwise.
+	 */
+	public boolean isLocked() {
+		return locked;
+	}
+
+	/**
+	 * Creates a new overlay of this CommandManager without a registrant.
+	 *
+	 * @return The new overlay CommandManager.
+	 * @throws IllegalStateException If this CommandManager is not locked.
+	 */
+	public CommandManager createOverlay() {
+		return createOverlay(new CommandRegistrantAdapter());
+	}
+
+	/**
+	 * Creates a new overlay of this CommandManager.
+	 * <p>
+	 * The overlay only stores the commands registered or hidden through it,
+	 * every other lookup falls through to this CommandManager.
+	 * </p>
+	 *
+	 * @param registrant The registrant responsible for native command registration of the overlay's commands.
+	 * @return The new overlay CommandManager.
+	 * @throws IllegalStateException If this CommandManager is not locked.
+	 */
+	public CommandManager createOverlay(CommandRegistrant registrant) {
+		if (!locked) throw new IllegalStateException("Only a locked CommandManager can be overlaid.");
+		return new CommandManager(this, registrant);
+	}
+
+	/**
+	 * Gets the CommandManager this one overlays.
+	 *
+	 * @return The parent CommandManager, or null if this isn't an overlay.
+	 */
+	public CommandManager getParent() {
+		return parent;
+	}
+
+	/**
+	 * Hides an inherited command from this overlay.
+	 * <p>
+	 * The command may either be a base command, which hides it along with all its subcommands,
+	 * or a full command with a subcommand. Commands registered directly with this
+	 * CommandManager are not affected.
+	 * </p>
+	 *
+	 * @param command The base or full command to hide.
+	 * @throws IllegalStateException If this CommandManager is locked.
+	 */
+	public void hideCommand(String command) {
+		checkNotLocked();
+
+		int subcommandIndex = command.indexOf(' ');
+		if (subcommandIndex == -1) {
+			if (hiddenCommands == null) {
+				hiddenCommands = new HashSet<>();
+			}
+			hiddenCommands.add(command);
+			// Subcommands registered with this overlay before the base was hidden no longer fall through either.
+			GroupedCommand groupedCommand = groupedCommands.get(command);
+			if (groupedCommand != null) groupedCommand.hideParent();
+			registryChanged();
+			return;
+		}
+
+		String baseCommand = command.substring(0, subcommandIndex);
+		if (lookupGroupedCommand(baseCommand) == null) return; // Nothing to hide
+		getGroupedCommand(baseCommand).hideSubcommand(command.substring(subcommandIndex + 1).trim());
+		registryChanged();
+	}
+
+	/**
+	 * Gets the cache of the messages sent by commands with a cache time to live.
+	 *
+	 * @return The result cache.
+	 */
+	public CommandResultCache getResultCache() {
+		return resultCache;
+	}
+
+	/**
+	 * Gets the fan-out that executes commands with a targets argument once for each target.
+	 *
+	 * @return The command fan-out.
+	 */
+	public CommandFanOut getFanOut() {
+		return fanOut;
+	}
+
+	/**
+	 * Adds an interceptor that applies to every CommandMethod registered with this CommandManager.
+	 *
+	 * @param interceptor The interceptor to add.
+	 * @throws IllegalStateException If this CommandManager is locked.
+	 */
+	public void addInterceptor(CommandInterceptor interceptor) {
+		addInterceptor(interceptor, method -> true);
+	}
+
+	/**
+	 * Adds an interceptor that applies to the CommandMethods whose Java method has the given annotation.
+	 *
+	 * @param interceptor The interceptor to add.
+	 * @param annotation The annotation that selects the methods the interceptor applies to.
+	 * @throws IllegalStateException If this CommandManager is locked.
+	 */
+	public void addInterceptor(CommandInterceptor interceptor, Class<? extends Annotation> annotation) {
+		addInterceptor(interceptor, method -> method.getMethod() != null && method.getMethod().isAnnotationPresent(annotation));
+	}
+
+	/**
+	 * Adds an interceptor that applies to the CommandMethods matching the selector.
+	 * <p>
+	 * Interceptors wrap each other in the order they're added, the first being outermost.
+	 * The selected interceptors are composed into each CommandMethod when it's registered, and the
+	 * CommandMethods already registered with this CommandManager are recomposed.
+	 * Overlays start with the interceptors of their parent, but interceptors added to an overlay
+	 * only apply to the methods registered with the overlay.
+	 * </p>
+	 *
+	 * @param interceptor The interceptor to add.
+	 * @param selector The selector of the methods the interceptor applies to.
+	 * @throws IllegalStateException If this CommandManager is locked.
+	 */
+	public void addInterceptor(CommandInterceptor interceptor, Predicate<CommandMethod> selector) {
+		checkNotLocked();
+		interceptors.add(new SelectedInterceptor(interceptor, selector));
+
+		for (GroupedCommand groupedCommand : groupedCommands.values()) {
+			for (CommandOverloads overloads : groupedCommand.getAttachedOverloads()) {
+				overloads.getMethods().forEach(this::composeInterceptors);
+			}
+		}
+	}
+
+	/**
+	 * Composes the interceptors that apply to the CommandMethod around it.
+	 * The result cache of a cached command is composed innermost, directly around the body,
+	 * so every other interceptor runs on a cache hit and a vetoed invocation is never cached.
+	 *
+	 * @param method The CommandMethod to compose the interceptors around.
+	 */
+	private void composeInterceptors(CommandMethod method) {
+		List<CommandInterceptor> selected = new ArrayList<>(interceptors.size() + 1);
+		for (SelectedInterceptor interceptor : interceptors) {
+			if (interceptor.selector.test(method)) {
+				selected.add(interceptor.interceptor);
+			}
+		}
+		if (method.getMeta().getCacheTtl() > 0) selected.add(resultCache);
+		method.composeInterceptors(selected);
 	}
 
 	/**
 	 * Registers the CommandHandler and the command methods it handles.
 	 *
 	 * @param handler The CommandHandler to register.
+	 * @throws IllegalStateException If this CommandManager is locked.
+	 * @throws IllegalArgumentException If the command properties of a method don't fit the method or each other.
 	 */
 	public void registerHandler(CommandHandler handler) {
+		checkNotLocked();
 		for (Method method : handler.getClass().getDeclaredMethods()) {
 			if (CommandMethod.validate(method)) {
-				CommandMethod commandMethod = new CommandMethod(handler, method, method.getAnnotation(CommandProperties.class));
+				CommandMethod commandMethod = new CommandMethod(handler, method, CommandDescriptor.of(method.getAnnotation(CommandProperties.class)));
 				registerCommandMethod(commandMethod);
 			}
 		}
 	}
 
+	/**
+	 * Starts building a functional command that is registered without a CommandHandler or reflection.
+	 *
+	 * @param command The command to build, including any subcommand.
+	 * @return The builder of the command, which registers it with this CommandManager.
+	 */
+	public CommandBuilder command(String command) {
+		return new CommandBuilder(this, command);
+	}
+
 	/**
 	 * Registers the CommandMethod in the list of grouped commands.
 	 *
 	 * @param method The CommandMethod to register.
+	 * @throws IllegalStateException If this CommandManager is locked.
+	 * @throws IllegalArgumentException If the command properties don't fit the method or each other.
 	 */
-	private void registerCommandMethod(CommandMethod method) {
-		// The commands (main command and aliases) to register
-		String[] commands = new String[method.getMeta().aliases().length + 1];
-		commands[0] = method.getMeta().command();
-		for (int i = 0; i < method.getMeta().aliases().length; i++) {
-			commands[i + 1] = method.getMeta().aliases()[i];
+	void registerCommandMethod(CommandMethod method) {
+		checkNotLocked();
+		CommandDescriptor meta = method.getMeta();
+		checkArgumentIndex(method, meta.getRoutingArgument(), "routing");
+		checkArgumentIndex(method, meta.getFanOutArgument(), "fan-out");
+		if ((meta.getCacheTtl() > 0 || meta.getDuplicatePolicy() == DuplicatePolicy.JOIN) && !method.receivesCommandInvoker()) {
+			// The messages are captured for the cache or the joined duplicates by handing the command its own CommandInvoker.
+			throw new IllegalArgumentException("The cached or joined command " + method + " must take a CommandInvoker as its first parameter.");
 		}
+		if (method.isLazyArgument(meta.getFanOutArgument())) {
+			// The targets argument must be expanded into its targets before the command runs.
+			throw new IllegalArgumentException("The fan-out argument " + meta.getFanOutArgument() + " of " + method + " can't be lazy.");
+		}
+		if (meta.getFanOutMode() == FanOutMode.TICKED && (meta.getCacheTtl() > 0 || meta.getDuplicatePolicy() != DuplicatePolicy.ALLOW)) {
+			// A ticked command finishes in a later tick, after the cache and duplicate tracking are done with it.
+			throw new IllegalArgumentException("The ticked command " + method + " can't be cached or deduplicated.");
+		}
+		if (meta.getFanOutMode() == FanOutMode.PARALLEL && meta.getCacheTtl() > 0) {
+			// The targets of a parallel command would send their messages to the cache from many threads at once.
+			throw new IllegalArgumentException("The parallel command " + method + " can't be cached.");
+		}
+		composeInterceptors(method);
 
-		for (String command : commands) { // Register the main command and each alias
-			String[] commandFragments = command.split(" ");
-
-			String baseCommand = commandFragments[0];
-			StringBuilder subcommand = new StringBuilder();
-			for (int i = 1; i < commandFragments.length; i++){
-				if (subcommand.length() != 0) subcommand.append(' ');
-				subcommand.append(commandFragments[i]);
-			}
-
-			boolean newBaseCommand = !groupedCommands.containsKey(baseCommand);
+		for (int i = 0; i < meta.getCommandCount(); i++) { // Register the main command and each alias
+			String baseCommand = meta.getBaseCommand(i);
+			boolean newBaseCommand = lookupGroupedCommand(baseCommand) == null;
 
 			GroupedCommand groupedCommand = getGroupedCommand(baseCommand);
-			groupedCommand.attachSubcommand(subcommand.toString(), method);
+			groupedCommand.attachSubcommand(meta.getSubcommand(i), method);
+			registryChanged();
 
 			// Notify the registrant when the base command is registered.
 			if (newBaseCommand)
@@ -91,6 +383,21 @@ public class CommandManager {
 		}
 	}
 
+	/**
+	 * Ensures an argument index of a CommandMethod's meta-data refers to one of its parsed arguments.
+	 *
+	 * @param method The CommandMethod being registered.
+	 * @param index The argument index, or -1 if it isn't set.
+	 * @param name The name of the argument index, used in the error message.
+	 * @throws IllegalArgumentException If the index is set but isn't one of the parsed arguments.
+	 */
+	private static void checkArgumentIndex(CommandMethod method, int index, String name) {
+		if (index == -1) return;
+		if (index < -1 || method.takesRawArguments() || index >= method.getArity()) {
+			throw new IllegalArgumentException("The " + name + " argument " + index + " of " + method + " is not one of its parsed arguments.");
+		}
+	}
+
 	/**
 	 * Gets a new or existing GroupedCommand with the given base command.
 	 *
@@ -100,7 +407,9 @@ public class CommandManager {
 	private GroupedCommand getGroupedCommand(String baseCommand) {
 		GroupedCommand groupedCommand;
 		if (!groupedCommands.containsKey(baseCommand)) {
-			groupedCommand = new GroupedCommand(baseCommand);
+			// Overlay any inherited GroupedCommand so its subcommands fall through.
+			GroupedCommand inherited = parent != null && !isHidden(baseCommand) ? parent.lookupGroupedCommand(baseCommand) : null;
+			groupedCommand = new GroupedCommand(baseCommand, inherited);
 			groupedCommands.put(baseCommand, groupedCommand);
 		} else {
 			groupedCommand = groupedCommands.get(baseCommand);
@@ -109,20 +418,243 @@ public class CommandManager {
 		return groupedCommand;
 	}
 
+	/**
+	 * Looks up the GroupedCommand for the base command, falling through to the parent
+	 * CommandManager if this is an overlay.
+	 *
+	 * @param baseCommand The command base.
+	 * @return The GroupedCommand for the given base command, or null if there is none.
+	 */
+	private GroupedCommand lookupGroupedCommand(String baseCommand) {
+		GroupedCommand groupedCommand = groupedCommands.get(baseCommand);
+		if (groupedCommand != null || parent == null || isHidden(baseCommand)) return groupedCommand;
+		return parent.lookupGroupedCommand(baseCommand);
+	}
+
+	/**
+	 * Checks if an inherited base command is hidden from this overlay.
+	 *
+	 * @param baseCommand The command base.
+	 * @return true if the base command is hidden, false otherwise.
+	 */
+	private boolean isHidden(String baseCommand) {
+		return hiddenCommands != null && hiddenCommands.contains(baseCommand);
+	}
+
+	/**
+	 * Ensures the registry can still be changed.
+	 *
+	 * @throws IllegalStateException If this CommandManager is locked.
+	 */
+	private void checkNotLocked() {
+		if (locked) throw new IllegalStateException("The CommandManager is locked.");
+	}
+
+	/**
+	 * Records that the registry changed, invalidating anything derived from it.
+	 */
+	private void registryChanged() {
+		version++;
+		commandMetas = null;
+	}
+
+	/**
+	 * Gets the version of the registry, which changes whenever a command is registered or hidden.
+	 * Anything derived from the registry can be cached until the version changes.
+	 *
+	 * @return The registry version.
+	 */
+	public int getVersion() {
+		return version;
+	}
+
 	/**
 	 * Gets the collection of command metas for each subcommand.
+	 * The collection is built once and reused until the registry changes.
+	 *
+	 * @return The unmodifiable collection of subcommand metas for each base command.
+	 */
+	public Collection<List<CommandDescriptor>> getCommandMetas() {
+		Collection<List<CommandDescriptor>> metas = commandMetas;
+		if (metas != null) return metas;
+
+		ArrayList<List<CommandDescriptor>> groupedCommandMetas = new ArrayList<>(groupedCommands.size());
+		collectCommandMetas(this, groupedCommandMetas);
+		return commandMetas = Collections.unmodifiableList(groupedCommandMetas);
+	}
+
+	/**
+	 * Adds the command metas of each GroupedCommand visible to the requester.
 	 *
-	 * @return The array of subcommand metas.
+	 * @param requester The CommandManager the metas are collected for.
+	 * @param groupedCommandMetas The collection to add the metas to.
 	 */
-	public Collection<CommandProperties[]> getCommandMetas() {
-		ArrayList<CommandProperties[]> groupedCommandMetas = new ArrayList<>(groupedCommands.size());
-		groupedCommands.values().forEach(groupedCommand -> groupedCommandMetas.add(groupedCommand.getSubcommandMetas()));
-		return groupedCommandMetas;
+	private void collectCommandMetas(CommandManager requester, Collection<List<CommandDescriptor>> groupedCommandMetas) {
+		groupedCommands.values().forEach(groupedCommand -> {
+			if (requester.lookupGroupedCommand(groupedCommand.getBaseCommand()) == groupedCommand) {
+				groupedCommandMetas.add(groupedCommand.getSubcommandMetas());
+			}
+		});
+		if (parent != null) parent.collectCommandMetas(requester, groupedCommandMetas);
+	}
+
+	/**
+	 * Warms up the dispatch path of every command before players join, so they don't pay for
+	 * interpreted dispatch, class loading and first-touch initialization of parsers.
+	 * <p>
+	 * Each command's declared samples, or a sample generated from its parameter types, are looked up, matched,
+	 * parsed and access checked the given amount of times as a synthetic invoker, through the same lookup as
+	 * dispatch so any overlays are primed too. Nothing is audited or recorded.
+	 * Only matching is primed: the interceptors and the command itself are never invoked, as that would run
+	 * the command's side effects.
+	 * </p>
+	 *
+	 * @param iterations The amount of times to run each sample.
+	 * @return The report of what was primed.
+	 */
+	public WarmUpReport warmUp(int iterations) {
+		long startTime = System.nanoTime();
+		List<String> primed = new ArrayList<>();
+		List<String> skipped = new ArrayList<>();
+		List<String> failed = new ArrayList<>();
+		WarmUpInvoker invoker = new WarmUpInvoker();
+
+		getCommandMetas(); // Caches the metas used by help before players join.
+
+		Set<String> baseCommands = new HashSet<>();
+		for (CommandManager level = this; level != null; level = level.parent) {
+			baseCommands.addAll(level.groupedCommands.keySet());
+		}
+		for (String baseCommand : baseCommands) {
+			GroupedCommand groupedCommand = lookupGroupedCommand(baseCommand);
+			if (groupedCommand == null) continue;
+
+			for (CommandMethod method : groupedCommand.getSubcommandMethods()) {
+				CommandDescriptor meta = method.getMeta();
+				List<String> samples = meta.getSamples().isEmpty() ? generateSample(method) : meta.getSamples();
+				if (samples.isEmpty()) {
+					skipped.add(meta.getCommand());
+					continue;
+				}
+
+				for (int commandIndex = 0; commandIndex < meta.getCommandCount(); commandIndex++) {
+					if (!meta.getBaseCommand(commandIndex).equals(baseCommand)) continue;
+
+					for (String sample : samples) {
+						String subcommand = meta.getSubcommand(commandIndex);
+						String input = subcommand.isEmpty() ? sample : (sample.isEmpty() ? subcommand : subcommand + " " + sample);
+						String[] args = input.isEmpty() ? new String[0] : input.split(" ");
+						String description = baseCommand + (input.isEmpty() ? "" : " " + input);
+						if (primeSample(baseCommand, invoker, args, iterations)) {
+							primed.add(description);
+						} else {
+							failed.add(description);
+						}
+					}
+				}
+			}
+		}
+
+		return new WarmUpReport(primed, skipped, failed, iterations, System.nanoTime() - startTime);
+	}
+
+	/**
+	 * Matches, parses and access checks a sample the given amount of times.
+	 *
+	 * @param baseCommand The base command of the sample.
+	 * @param invoker The synthetic invoker.
+	 * @param args The sample arguments after the base command.
+	 * @param iterations The amount of times to run the sample.
+	 * @return true if the sample matched and parsed, false otherwise.
+	 */
+	private boolean primeSample(String baseCommand, WarmUpInvoker invoker, String[] args, int iterations) {
+		for (int i = 0; i < iterations; i++) {
+			MatchedCommandMethod matchedMethod;
+			try {
+				matchedMethod = lookupCommand(baseCommand, args);
+			} catch (ArgumentParseException e) {
+				return false;
+			}
+			if (matchedMethod == null) return false;
+
+			matchedMethod.getMethod().canInvoke(invoker);
+		}
+		return true;
+	}
+
+	/**
+	 * Generates sample arguments for a CommandMethod from its parameter types.
+	 *
+	 * @param method The CommandMethod to generate the sample for.
+	 * @return A list with the sample arguments, or an empty list if a parameter type can't be sampled.
+	 */
+	private static List<String> generateSample(CommandMethod method) {
+		if (method.takesRawArguments()) return Collections.singletonList("");
+
+		StringBuilder sample = new StringBuilder();
+		for (Class<?> argumentType : method.getArgumentTypes()) {
+			String argument = ParameterType.sampleArgument(argumentType);
+			if (argument == null) return Collections.emptyList();
+
+			if (sample.length() != 0) sample.append(' ');
+			sample.append(argument);
+		}
+		return Collections.singletonList(sample.toString());
+	}
+
+	/**
+	 * Sets the sink that receives a record of every command dispatched by this CommandManager.
+	 *
+	 * @param auditSink The audit sink, or null to stop auditing.
+	 */
+	public void setAuditSink(CommandAuditSink auditSink) {
+		this.auditSink = auditSink;
+	}
+
+	/**
+	 * Gets the sink that receives a record of every command dispatched by this CommandManager.
+	 *
+	 * @return The audit sink, or null if commands aren't audited.
+	 */
+	public CommandAuditSink getAuditSink() {
+		return auditSink;
+	}
+
+	/**
+	 * Sets the recorder capturing every command entered through this CommandManager.
+	 *
+	 * @param trafficRecorder The traffic recorder, or null to stop recording.
+	 */
+	public void setTrafficRecorder(CommandTrafficRecorder trafficRecorder) {
+		this.trafficRecorder = trafficRecorder;
+	}
+
+	/**
+	 * Sets the router forwarding commands to the node that owns them.
+	 * This is done by the CommandRouter when it is constructed.
+	 *
+	 * @param router The command router, or null to run every command locally.
+	 */
+	public void setRouter(CommandRouter router) {
+		this.router = router;
+	}
+
+	/**
+	 * Gets the router forwarding commands to the node that owns them.
+	 *
+	 * @return The command router, or null if every command runs locally.
+	 */
+	public CommandRouter getRouter() {
+		return router;
 	}
 
 	/**
 	 * Invokes the appropriate CommandMethod based on the command
 	 * entered by the user.
+	 * <p>
+	 * Any thread may dispatch through a locked CommandManager. An unlocked CommandManager is still
+	 * being registered, so it may only dispatch on the thread registering its commands.
+	 * </p>
 	 *
 	 * @param sender The sender of the command.
 	 * @param baseCommand The base of the command.
@@ -130,28 +662,290 @@ public class CommandManager {
 	 * @return true if the command is valid, false otherwise.
 	 */
 	public boolean invokeCommand(CommandInvoker sender, String baseCommand, String[] args) {
-		if (!groupedCommands.containsKey(baseCommand)) return false;
-		GroupedCommand groupedCommand = groupedCommands.get(baseCommand);
-		MatchedCommandMethod matchedMethod;
+		MatchedCommandMethod matchedMethod = matchCommand(sender, baseCommand, args);
+		if (matchedMethod == null) return false; // No matching method was found.
+
+		// We found the method, try to invoke it
+		if (checkAccess(sender, baseCommand, matchedMethod)) {
+			return executeCommand(sender, baseCommand, matchedMethod);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Finds the CommandMethod matching the command entered by the user and parses its arguments.
+	 * <p>
+	 * This does not touch any state other than the registry, so it's safe to call off the main thread
+	 * once the CommandManager is locked.
+	 * </p>
+	 *
+	 * @param sender The sender of the command, notified if the arguments can't be parsed.
+	 * @param baseCommand The base of the command.
+	 * @param args The arguments provided with the base command.
+	 * @return The matched CommandMethod and its parsed arguments, or null if the command is invalid.
+	 */
+	protected MatchedCommandMethod matchCommand(CommandInvoker sender, String baseCommand, String[] args) {
+		CommandTrafficRecorder trafficRecorder = this.trafficRecorder;
+		if (trafficRecorder != null) trafficRecorder.record(sender, baseCommand, args);
+
+		long startTime = auditSink != null ? System.nanoTime() : 0;
+		MatchedCommandMethod matchedMethod = null;
+		CommandOutcome outcome = CommandOutcome.UNKNOWN_COMMAND;
 		try {
-			// Find the subcommand method that matches the arguments.
-			matchedMethod = groupedCommand.matchSubcommand(args);
+			matchedMethod = lookupCommand(baseCommand, args);
 		} catch (ArgumentParseException e) {
 			// There's an issue with the arguments provided.
 			sender.sendMessage(e.getDisplayMessage());
+			outcome = CommandOutcome.INVALID_ARGUMENTS;
+		}
+
+		if (matchedMethod == null) audit(sender, baseCommand, null, args, outcome, startTime);
+		return matchedMethod;
+	}
+
+	/**
+	 * Invokes a command that was already matched on the node that routed it here, skipping the subcommand
+	 * matching and overload resolution. The raw arguments are parsed again, as parsed values are local to a node.
+	 * If the overload doesn't exist on this node, the command is matched again from its raw arguments.
+	 * An overload that isn't allowed in this node's environment is treated as an unknown command.
+	 *
+	 * @param sender The sender of the command.
+	 * @param baseCommand The base of the command.
+	 * @param subcommand The matched subcommand, empty for the base command itself.
+	 * @param overload The index of the matched overload among the overloads of the subcommand.
+	 * @param args The raw arguments after the subcommand.
+	 * @return true if the command is valid, false otherwise.
+	 */
+	boolean invokeMatched(CommandInvoker sender, String baseCommand, String subcommand, int overload, String[] args) {
+		long startTime = auditSink != null ? System.nanoTime() : 0;
+		CommandOverloads overloads = lookupOverloads(baseCommand, subcommand);
+		if (overloads == null || overload >= overloads.getMethods().size()) {
+			// The registries of the nodes differ, fall back to matching the command.
+			String[] fullArgs = args;
+			if (!subcommand.isEmpty()) {
+				String[] subcommandArgs = subcommand.split(" ");
+				fullArgs = Arrays.copyOf(subcommandArgs, subcommandArgs.length + args.length);
+				System.arraycopy(args, 0, fullArgs, subcommandArgs.length, args.length);
+			}
+			return invokeCommand(sender, baseCommand, fullArgs);
+		}
+
+		CommandMethod method = overloads.getMethods().get(overload);
+		if (!EnvironmentFlags.hasFlag(EnvironmentFlags.CURRENT_FLAG, method.getMeta().getEnvironments())) {
+			// The command isn't allowed in this node's environment, as if it weren't registered.
+			audit(sender, baseCommand, subcommand, args, CommandOutcome.UNKNOWN_COMMAND, startTime);
 			return false;
 		}
-		if (matchedMethod == null) return false; // No matching method was found.
 
-		// We found the method, try to invoke it
+		MatchedCommandMethod matchedMethod;
+		try {
+			matchedMethod = new MatchedCommandMethod(method, subcommand, args, GroupedCommand.getArguments(args, method));
+		} catch (ArgumentParseException e) {
+			sender.sendMessage(e.getDisplayMessage() + "\n§cUsage: " + method.getMeta().getUsage());
+			audit(sender, baseCommand, subcommand, args, CommandOutcome.INVALID_ARGUMENTS, startTime);
+			return false;
+		}
+
+		if (checkAccess(sender, baseCommand, matchedMethod)) {
+			return executeCommand(sender, baseCommand, matchedMethod);
+		}
+		return true;
+	}
+
+	/**
+	 * Looks up the overloads of an exact subcommand, falling through to the parent if this is an overlay.
+	 *
+	 * @param baseCommand The base of the command.
+	 * @param subcommand The subcommand, empty for the base command itself.
+	 * @return The overloads of the subcommand, or null if there is no such command.
+	 */
+	CommandOverloads lookupOverloads(String baseCommand, String subcommand) {
+		acquireRegistry();
+		GroupedCommand groupedCommand = lookupGroupedCommand(baseCommand);
+		return groupedCommand != null ? groupedCommand.findOverloads(subcommand) : null;
+	}
+
+	/**
+	 * Looks up the base command, falling through to the parent if this is an overlay,
+	 * and matches the subcommand method and parses its arguments.
+	 *
+	 * @param baseCommand The base of the command.
+	 * @param args The arguments provided with the base command.
+	 * @return The matched CommandMethod and its parsed arguments, or null if there is no such command.
+	 * @throws ArgumentParseException If the arguments can't be parsed for the matched subcommand.
+	 */
+	private MatchedCommandMethod lookupCommand(String baseCommand, String[] args) throws ArgumentParseException {
+		acquireRegistry();
+		GroupedCommand groupedCommand = lookupGroupedCommand(baseCommand);
+		return groupedCommand != null ? groupedCommand.matchSubcommand(args) : null;
+	}
+
+	/**
+	 * Acquires the registry before a command is looked up for dispatch.
+	 * <p>
+	 * Reading the volatile lock flag orders the lookup after every registration made before {@link #lock()},
+	 * which publishes a locked registry to any dispatching thread. The read is the whole point of this method
+	 * and must stay even though the lookup doesn't use the flag. An unlocked registry has no such guarantee,
+	 * it may only be dispatched from the thread registering its commands.
+	 * </p>
+	 *
+	 * @return true if the registry is locked and published, false if it's still confined to the registering thread.
+	 */
+	private boolean acquireRegistry() {
+		return locked;
+	}
+
+	/**
+	 * Checks if the sender is allowed to invoke the matched CommandMethod, notifying them if they aren't.
+	 *
+	 * @param sender The sender of the command.
+	 * @param baseCommand The base of the command.
+	 * @param matchedMethod The matched CommandMethod and its parsed arguments.
+	 * @return true if the sender is allowed to invoke the command, false otherwise.
+	 */
+	protected boolean checkAccess(CommandInvoker sender, String baseCommand, MatchedCommandMethod matchedMethod) {
+		long startTime = auditSink != null ? System.nanoTime() : 0;
+		if (matchedMethod.getMethod().canInvoke(sender)) return true;
+
+		audit(sender, baseCommand, matchedMethod.getSubcommand(), matchedMethod.getRawArguments(), CommandOutcome.DENIED, startTime);
+		return false;
+	}
+
+	/**
+	 * Executes a matched CommandMethod whose access has already been checked, or forwards it to the node that owns it.
+	 *
+	 * @param sender The sender of the command.
+	 * @param baseCommand The base of the command.
+	 * @param matchedMethod The matched CommandMethod and its parsed arguments.
+	 * @return false if an argument the command parsed on demand was invalid, true otherwise.
+	 */
+	protected boolean executeCommand(CommandInvoker sender, String baseCommand, MatchedCommandMethod matchedMethod) {
+		long startTime = auditSink != null ? System.nanoTime() : 0;
+		CommandRouter router = this.router;
+		if (router != null && router.route(sender, baseCommand, matchedMethod)) {
+			// Another node owns the command
+			audit(sender, baseCommand, matchedMethod.getSubcommand(), matchedMethod.getRawArguments(), CommandOutcome.ROUTED, startTime);
+			return true;
+		}
+
+		DuplicatePolicy duplicatePolicy = matchedMethod.getMethod().getMeta().getDuplicatePolicy();
+		InFlightCommands.InFlightCommand inFlightCommand = null;
+		if (duplicatePolicy != DuplicatePolicy.ALLOW) {
+			// A joined duplicate receives the messages of the invocation it joined and is audited once that finishes.
+			Consumer<String[]> joined = duplicatePolicy != DuplicatePolicy.JOIN ? null : messages -> {
+				for (String message : messages) {
+					sender.sendMessage(message);
+				}
+				audit(sender, baseCommand, matchedMethod.getSubcommand(), matchedMethod.getRawArguments(), CommandOutcome.DUPLICATE, startTime);
+			};
+			inFlightCommand = inFlightCommands.begin(sender, matchedMethod, duplicatePolicy, joined);
+			if (inFlightCommand == null) {
+				// An identical invocation is executing
+				if (duplicatePolicy == DuplicatePolicy.DROP) {
+					sender.sendMessage(DUPLICATE_COMMAND_MESSAGE);
+					audit(sender, baseCommand, matchedMethod.getSubcommand(), matchedMethod.getRawArguments(), CommandOutcome.DUPLICATE, startTime);
+				}
+				return true;
+			}
+		}
+
+		// The messages of an invocation that can be joined are captured for its duplicates.
+		CommandInvoker executingSender = duplicatePolicy == DuplicatePolicy.JOIN ? inFlightCommand.capture(sender) : sender;
+		CommandOutcome outcome = CommandOutcome.SUCCESS;
 		try {
-			matchedMethod.getMethod().invoke(sender, matchedMethod.getArguments());
+			matchedMethod.getMethod().invokeAuthorized(executingSender, matchedMethod.getArguments());
+			if (fanOut.spansTicks(matchedMethod.getMethod(), matchedMethod.getArguments())) {
+				// The rest of the targets run in later ticks, only the dispatch is complete.
+				outcome = CommandOutcome.SCHEDULED;
+			}
+		} catch (LazyArgumentException e) {
+			// An argument the command parsed on demand is invalid.
+			sender.sendMessage(e.getDisplayMessage() + "\n§cUsage: " + matchedMethod.getMethod().getMeta().getUsage());
+			outcome = CommandOutcome.INVALID_ARGUMENTS;
 		} catch (Exception e) {
 			Logger.getGlobal().log(Level.SEVERE, "An error occurred while invoking " + matchedMethod.toString(), e);
 			sender.sendMessage("§cAn error occurred while executing the " + baseCommand + " command.");
+			outcome = CommandOutcome.FAILED;
+		} finally {
+			if (inFlightCommand != null) inFlightCommands.end(inFlightCommand);
+		}
+
+		audit(sender, baseCommand, matchedMethod.getSubcommand(), matchedMethod.getRawArguments(), outcome, startTime);
+		return outcome != CommandOutcome.INVALID_ARGUMENTS;
+	}
+
+	/**
+	 * Passes the record of a dispatched command to the audit sink, if there is one.
+	 *
+	 * @param sender The sender of the command.
+	 * @param baseCommand The base of the command.
+	 * @param subcommand The matched subcommand, or null if no command was matched.
+	 * @param args The raw arguments of the command.
+	 * @param outcome The outcome of the command.
+	 * @param startTime The System.nanoTime() the dispatch stage started at.
+	 */
+	private void audit(CommandInvoker sender, String baseCommand, String subcommand, String[] args, CommandOutcome outcome, long startTime) {
+		CommandAuditSink auditSink = this.auditSink;
+		if (auditSink != null) {
+			auditSink.commandDispatched(sender, baseCommand, subcommand, args, outcome, System.nanoTime() - startTime);
+		}
+	}
+
+	/**
+	 * An interceptor and the selector of the CommandMethods it applies to.
+	 */
+	private static class SelectedInterceptor {
+
+		/**
+		 * The interceptor.
+		 */
+		private final CommandInterceptor interceptor;
+		/**
+		 * The selector of the CommandMethods the interceptor applies to.
+		 */
+		private final Predicate<CommandMethod> selector;
+
+		/**
+		 * Constructs a new SelectedInterceptor.
+		 *
+		 * @param interceptor The interceptor.
+		 * @param selector The selector of the CommandMethods the interceptor applies to.
+		 */
+		private SelectedInterceptor(CommandInterceptor interceptor, Predicate<CommandMethod> selector) {
+			this.interceptor = interceptor;
+			this.selector = selector;
+		}
+
+	}
+
+	/**
+	 * A synthetic invoker used to warm up commands, which has every permission and discards its messages.
+	 */
+	private static class WarmUpInvoker extends CommandInvoker<Object> {
+
+		/**
+		 * Constructs a new WarmUpInvoker.
+		 */
+		private WarmUpInvoker() {
+			super(new Object());
+		}
+
+		@Override
+		public void sendMessage(String message) {
+
+		}
+
+		@Override
+		public boolean hasPermission(String perm) {
+			return true;
+		}
+
+		@Override
+		public boolean isPlayer() {
+			return false;
 		}
 
-		return true;
 	}
 
 }
\ No newline at end of file
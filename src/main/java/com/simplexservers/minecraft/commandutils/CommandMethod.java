@@ -1,6 +1,13 @@
 package com.simplexservers.minecraft.commandutils;
 
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * Represents a method that gets executed when a command is runAsync.
@@ -22,7 +29,39 @@ public class CommandMethod {
 	/**
 	 * The meta-data of the command the method is serving.
 	 */
-	private CommandProperties meta;
+	private CommandDescriptor meta;
+	/**
+	 * The executor that runs the command body, either the Java reflection method or a functional body.
+	 */
+	private final CommandExecutor body;
+	/**
+	 * The executor of the method with its interceptors composed around it.
+	 */
+	private CommandExecutor executor;
+	/**
+	 * The type the invoker must be an instance of.
+	 */
+	private final Class<?> invokerType;
+	/**
+	 * Whether the invoker type is checked against the CommandInvoker itself instead of the native invoker.
+	 */
+	private final boolean takesInvoker;
+	/**
+	 * The types of the arguments after the invoker.
+	 */
+	private final Class<?>[] argumentTypes;
+	/**
+	 * The parsers bound to each argument, or null if the arguments are parsed by their type when invoked.
+	 */
+	private final ParameterTypeParser<?>[] parsers;
+	/**
+	 * Whether the method takes the raw String[] arguments.
+	 */
+	private final boolean takesRawArguments;
+	/**
+	 * Whether each argument is passed as a Lazy argument that's parsed on demand, or null if none are.
+	 */
+	private final boolean[] lazyArguments;
 
 	/**
 	 * Constructs a new CommandMethod with the given handler, Java method, and command meta-data.
@@ -32,26 +71,190 @@ public class CommandMethod {
 	 * @param meta The meta-data of the command the method is serving.
 	 */
 	public CommandMethod(CommandHandler instance, Method method, CommandProperties meta) {
+		this(instance, method, CommandDescriptor.of(meta));
+	}
+
+	/**
+	 * Constructs a new CommandMethod with the given handler, Java method, and compiled command meta-data.
+	 *
+	 * @param instance The instance of the handler the method belongs to.
+	 * @param method The Java reflection method to invoke.
+	 * @param meta The compiled meta-data of the command the method is serving.
+	 */
+	public CommandMethod(CommandHandler instance, Method method, CommandDescriptor meta) {
 		this.instance = instance;
 		this.method = method;
 		this.meta = meta;
+		this.body = this::invokeMethod;
+		this.executor = body;
+
+		Class<?>[] parameterTypes = method.getParameterTypes();
+		this.invokerType = parameterTypes[0];
+		this.takesInvoker = CommandInvoker.class.isAssignableFrom(invokerType);
+		this.argumentTypes = Arrays.copyOfRange(parameterTypes, 1, parameterTypes.length);
+		this.parsers = null;
+		this.takesRawArguments = argumentTypes.length == 1 && argumentTypes[0] == String[].class;
+
+		// Lazy and Supplier parameters are parsed on demand to the type they're parameterized with.
+		boolean[] lazyArguments = null;
+		Type[] genericTypes = method.getGenericParameterTypes();
+		for (int i = 0; i < argumentTypes.length; i++) {
+			if (argumentTypes[i] != Lazy.class && argumentTypes[i] != Supplier.class) continue;
+
+			Type genericType = genericTypes[i + 1];
+			Type valueType = genericType instanceof ParameterizedType ? ((ParameterizedType) genericType).getActualTypeArguments()[0] : null;
+			if (!(valueType instanceof Class)) {
+				throw new IllegalArgumentException("The lazy parameter " + i + " of " + method.getName() + " must be parameterized with a class.");
+			}
+
+			if (lazyArguments == null) lazyArguments = new boolean[argumentTypes.length];
+			lazyArguments[i] = true;
+			argumentTypes[i] = ParameterType.unbox((Class<?>) valueType);
+		}
+		this.lazyArguments = lazyArguments;
+	}
+
+	/**
+	 * Constructs a new functional CommandMethod that runs a body instead of a Java reflection method.
+	 *
+	 * @param meta The compiled meta-data of the command the method is serving.
+	 * @param invokerType The type the native invoker must be an instance of.
+	 * @param argumentTypes The types of the arguments after the invoker, or just String[] to take the raw arguments.
+	 * @param parsers The parsers bound to each argument, ignored when taking the raw arguments.
+	 * @param body The body run with the CommandInvoker and the parsed arguments.
+	 */
+	public CommandMethod(CommandDescriptor meta, Class<?> invokerType, Class<?>[] argumentTypes, ParameterTypeParser<?>[] parsers, CommandExecutor body) {
+		this(meta, invokerType, argumentTypes, parsers, null, body);
+	}
+
+	/**
+	 * Constructs a new functional CommandMethod that runs a body instead of a Java reflection method.
+	 *
+	 * @param meta The compiled meta-data of the command the method is serving.
+	 * @param invokerType The type the native invoker must be an instance of.
+	 * @param argumentTypes The types of the arguments after the invoker, or just String[] to take the raw arguments.
+	 * @param parsers The parsers bound to each argument, ignored when taking the raw arguments.
+	 * @param lazyArguments Whether each argument is passed as a Lazy argument that's parsed on demand, or null if none are.
+	 * @param body The body run with the CommandInvoker and the parsed arguments.
+	 */
+	public CommandMethod(CommandDescriptor meta, Class<?> invokerType, Class<?>[] argumentTypes, ParameterTypeParser<?>[] parsers,
+			boolean[] lazyArguments, CommandExecutor body) {
+		this.meta = meta;
+		this.body = body;
+		this.executor = body;
+		this.invokerType = invokerType;
+		this.takesInvoker = false;
+		this.argumentTypes = argumentTypes.clone();
+		this.parsers = parsers.clone();
+		this.takesRawArguments = argumentTypes.length == 1 && argumentTypes[0] == String[].class;
+		this.lazyArguments = lazyArguments != null ? lazyArguments.clone() : null;
 	}
 
 	/**
 	 * Gets the Java reflection method to be invoked.
 	 *
-	 * @return The Java reflection method.
+	 * @return The Java reflection method, or null if this is a functional CommandMethod.
 	 */
 	public Method getMethod() {
 		return method;
 	}
 
+	/**
+	 * Gets the types of the arguments the method takes after the invoker.
+	 * Lazy arguments have the type they're parsed to.
+	 *
+	 * @return A copy of the argument types.
+	 */
+	public Class<?>[] getArgumentTypes() {
+		return argumentTypes.clone();
+	}
+
+	/**
+	 * Gets the amount of arguments the method takes after the invoker.
+	 *
+	 * @return The arity of the method.
+	 */
+	public int getArity() {
+		return argumentTypes.length;
+	}
+
+	/**
+	 * Checks if an argument is passed as a Lazy argument that's parsed on demand.
+	 *
+	 * @param index The index of the argument after the invoker.
+	 * @return true if the argument is lazy, false otherwise.
+	 */
+	public boolean isLazyArgument(int index) {
+		return lazyArguments != null && index >= 0 && index < lazyArguments.length && lazyArguments[index];
+	}
+
+	/**
+	 * Checks if any argument is passed as a Lazy argument that's parsed on demand.
+	 *
+	 * @return true if the method takes a lazy argument, false otherwise.
+	 */
+	public boolean takesLazyArguments() {
+		if (lazyArguments == null) return false;
+		for (boolean lazy : lazyArguments) {
+			if (lazy) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Checks if the method receives the CommandInvoker itself, typed as CommandInvoker, so it can be handed
+	 * any CommandInvoker for the same native invoker. Functional CommandMethods always receive it.
+	 *
+	 * @return true if the method receives the CommandInvoker, false if it takes the native invoker or a CommandInvoker subclass.
+	 */
+	public boolean receivesCommandInvoker() {
+		return method == null || invokerType == CommandInvoker.class;
+	}
+
+	/**
+	 * Checks if the method takes the raw String[] arguments instead of parsed arguments.
+	 *
+	 * @return true if the method takes the raw arguments, false otherwise.
+	 */
+	public boolean takesRawArguments() {
+		return takesRawArguments;
+	}
+
+	/**
+	 * Parses an argument entered by the CommandSender with the parser bound to it,
+	 * or by its argument type if no parser is bound. The targets argument of a command
+	 * that fans out is parsed into the list of its targets, and a lazy argument is wrapped
+	 * to be parsed when the command asks for it.
+	 *
+	 * @param index The index of the argument after the invoker.
+	 * @param arg The argument entered by the CommandSender.
+	 * @return The parsed argument.
+	 * @throws ArgumentParseException If there is a format issue parsing the argument.
+	 * @throws IllegalArgumentException If the argument type is not supported.
+	 */
+	public Object parseArgument(int index, String arg) throws ArgumentParseException {
+		if (lazyArguments != null && lazyArguments[index]) {
+			if (parsers != null) return new Lazy<>(arg, parsers[index]);
+			Class<?> argumentType = argumentTypes[index];
+			return new Lazy<>(arg, input -> ParameterType.parseArgument(input, argumentType));
+		}
+
+		if (index == meta.getFanOutArgument()) {
+			// The targets argument is parsed into the list of targets the command is executed for.
+			if (parsers != null) return ParameterType.toTargets(arg, (Collection<?>) parsers[index].parse(arg));
+			return ParameterType.parseTargets(arg, argumentTypes[index]);
+		}
+
+		if (parsers != null) return parsers[index].parse(arg);
+		return ParameterType.parseArgument(arg, argumentTypes[index]);
+	}
+
 	/**
 	 * Gets the meta-data about the command the method serves.
 	 *
 	 * @return The command meta-data the method serves.
 	 */
-	public CommandProperties getMeta() {
+	public CommandDescriptor getMeta() {
 		return meta;
 	}
 
@@ -64,31 +267,88 @@ public class CommandMethod {
 	 * @throws Exception If there was an issue invoking the method.
 	 */
 	public void invoke(CommandInvoker sender, Object... args) throws Exception {
+		if (!canInvoke(sender)) return;
+		invokeAuthorized(sender, args);
+	}
+
+	/**
+	 * Checks if the sender is allowed to invoke the method, notifying them if they aren't.
+	 *
+	 * @param sender The sender of the command.
+	 * @return true if the sender has permission and is of the right type, false otherwise.
+	 */
+	public boolean canInvoke(CommandInvoker sender) {
 		// Check if they have permission for this command
-		if (!getMeta().permission().isEmpty()) {
-			if (!sender.hasPermission(getMeta().permission())) {
+		PermissionNode permissionNode = meta.getPermissionNode();
+		if (permissionNode != null) {
+			if (!sender.hasPermission(permissionNode)) {
 				sender.sendMessage(NO_PERMISSION_MESSAGE);
-				return;
+				return false;
 			}
 		}
 
-		// Construct the method arguments with the CommandSender prepended.
-		Object[] methodArgs = new Object[args.length + 1];
-		// Ensure the native invoker can be cast to the method parameter.
-		if (!method.getParameterTypes()[0].isAssignableFrom(sender.getNativeInvoker().getClass())) {
+		// Ensure the invoker can be cast to the method parameter.
+		if (!invokerType.isInstance(takesInvoker ? sender : sender.getNativeInvoker())) {
 			if (!sender.isPlayer()) {
 				sender.sendMessage("§cThis command can only be executed by a player.");
 			} else {
 				sender.sendMessage("§cThis command can not be invoked by someone of your type (" + sender.getNativeInvoker().getClass().getSimpleName() + ")");
 			}
-			return;
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Invokes the underlying Java method without checking if the sender is allowed to.
+	 * The caller must have already checked {@link #canInvoke(CommandInvoker)}.
+	 *
+	 * @param sender The sender of the command.
+	 * @param args The additional arguments to be passed to the method.
+	 * @throws Exception If there was an issue invoking the method.
+	 */
+	public void invokeAuthorized(CommandInvoker sender, Object... args) throws Exception {
+		executor.execute(sender, args);
+	}
+
+	/**
+	 * Composes the interceptors around the method, replacing any previously composed interceptors.
+	 *
+	 * @param interceptors The interceptors to compose, outermost first.
+	 */
+	void composeInterceptors(List<CommandInterceptor> interceptors) {
+		CommandExecutor composed = body;
+		for (int i = interceptors.size() - 1; i >= 0; i--) {
+			CommandInterceptor interceptor = interceptors.get(i);
+			CommandExecutor next = composed;
+			composed = (sender, args) -> interceptor.intercept(sender, this, args, next);
 		}
+		executor = composed;
+	}
 
-		methodArgs[0] = sender.getNativeInvoker();
+	/**
+	 * Invokes the underlying Java method with the invoker prepended to the arguments.
+	 * Methods whose first parameter is a CommandInvoker receive the CommandInvoker, every other method receives the native invoker.
+	 *
+	 * @param sender The sender of the command.
+	 * @param args The additional arguments to be passed to the method.
+	 * @throws Exception If there was an issue invoking the method.
+	 */
+	private void invokeMethod(CommandInvoker sender, Object[] args) throws Exception {
+		// Construct the method arguments with the CommandSender prepended.
+		Object[] methodArgs = new Object[args.length + 1];
+		methodArgs[0] = takesInvoker ? sender : sender.getNativeInvoker();
 
 		System.arraycopy(args, 0, methodArgs, 1, args.length);
 
-		method.invoke(instance, methodArgs);
+		try {
+			method.invoke(instance, methodArgs);
+		} catch (InvocationTargetException e) {
+			// Pass deferred argument errors on as is so they're reported like any other argument error.
+			if (e.getCause() instanceof LazyArgumentException) throw (LazyArgumentException) e.getCause();
+			throw e;
+		}
 	}
 
 	/**
@@ -108,7 +368,7 @@ public class CommandMethod {
 
 	@Override
 	public String toString() {
-		return "CommandMethod{method=" + method.getName() + ",meta=" + meta.toString() + "}";
+		return "CommandMethod{method=" + (method != null ? method.getName() : "<functional>") + ",meta=" + meta.toString() + "}";
 	}
 
 }
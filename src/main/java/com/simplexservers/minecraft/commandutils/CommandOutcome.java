@@ -0,0 +1,41 @@
+package com.simplexservers.minecraft.commandutils;
+
+/**
+ * The outcome of a command entered by an invoker.
+ *
+ * @author Zach Abney
+ */
+public enum CommandOutcome {
+	/**
+	 * The command was executed without throwing an exception.
+	 */
+	SUCCESS,
+	/**
+	 * The command was started and keeps executing in later ticks, such as a ticked fan-out with many targets.
+	 */
+	SCHEDULED,
+	/**
+	 * The command threw an exception while executing.
+	 */
+	FAILED,
+	/**
+	 * The command was joined to or dropped against an identical invocation that was still executing.
+	 */
+	DUPLICATE,
+	/**
+	 * The command was forwarded to the node that owns its routing key.
+	 */
+	ROUTED,
+	/**
+	 * The invoker didn't have permission or was of the wrong type.
+	 */
+	DENIED,
+	/**
+	 * The arguments entered couldn't be parsed for the command.
+	 */
+	INVALID_ARGUMENTS,
+	/**
+	 * No command matched the base command and arguments entered.
+	 */
+	UNKNOWN_COMMAND
+}
@@ -0,0 +1,170 @@
+package com.simplexservers.minecraft.commandutils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The overloaded CommandMethods that share a subcommand, indexed by arity.
+ * <p>
+ * The candidates for every amount of arguments are resolved when a method is added,
+ * so finding the overloads that fit the arguments entered is a single array lookup.
+ * </p>
+ *
+ * @author Zach Abney
+ */
+public class CommandOverloads {
+
+	/**
+	 * The empty set of candidates.
+	 */
+	private static final CommandMethod[] NO_CANDIDATES = new CommandMethod[0];
+
+	/**
+	 * Every CommandMethod attached to the subcommand, in registration order.
+	 */
+	private final List<CommandMethod> methods = new ArrayList<>(1);
+	/**
+	 * The CommandMethods allowed in the current environment grouped by arity.
+	 */
+	private CommandMethod[][] byArity = new CommandMethod[0][];
+	/**
+	 * The CommandMethods allowed in the current environment that take the raw String[] arguments.
+	 */
+	private CommandMethod[] rawArguments = NO_CANDIDATES;
+	/**
+	 * The resolved candidates for each amount of arguments up to the highest arity.
+	 */
+	private CommandMethod[][] candidates = new CommandMethod[0][];
+	/**
+	 * The resolved candidates for any amount of arguments above the highest arity.
+	 */
+	private CommandMethod[] overflowCandidates = NO_CANDIDATES;
+
+	/**
+	 * Gets every CommandMethod attached to the subcommand.
+	 *
+	 * @return The unmodifiable list of CommandMethods in registration order.
+	 */
+	public List<CommandMethod> getMethods() {
+		return Collections.unmodifiableList(methods);
+	}
+
+	/**
+	 * Checks if any CommandMethod is allowed to be invoked in the current environment.
+	 *
+	 * @return true if there is an invokable CommandMethod, false otherwise.
+	 */
+	public boolean isInvokable() {
+		return byArity.length != 0 || rawArguments.length != 0;
+	}
+
+	/**
+	 * Adds the CommandMethod as an overload of the subcommand.
+	 *
+	 * @param method The CommandMethod to add.
+	 */
+	public void add(CommandMethod method) {
+		methods.add(method);
+
+		// Methods that aren't allowed in the current environment are never candidates.
+		if (!EnvironmentFlags.hasFlag(EnvironmentFlags.CURRENT_FLAG, method.getMeta().getEnvironments())) return;
+
+		if (method.takesRawArguments()) {
+			rawArguments = append(rawArguments, method);
+		} else {
+			int arity = method.getArity();
+			if (arity >= byArity.length) {
+				byArity = Arrays.copyOf(byArity, arity + 1);
+			}
+			byArity[arity] = insert(byArity[arity] == null ? NO_CANDIDATES : byArity[arity], method);
+		}
+
+		resolveCandidates();
+	}
+
+	/**
+	 * Gets the overloads that can be invoked with the given amount of arguments.
+	 * <p>
+	 * Overloads of the exact arity are preferred, then overloads that take the raw arguments,
+	 * then the overloads with the highest arity below the amount of arguments, which ignore the extra arguments.
+	 * Within an arity, overloads with lazy arguments come after the others, as a lazy argument accepts any input
+	 * until the command asks for it.
+	 * </p>
+	 *
+	 * @param argumentCount The amount of arguments entered.
+	 * @return The candidate overloads, empty if there are not enough arguments for any of them.
+	 */
+	public CommandMethod[] getCandidates(int argumentCount) {
+		return argumentCount < candidates.length ? candidates[argumentCount] : overflowCandidates;
+	}
+
+	/**
+	 * Gets the overload with the lowest arity, used to show the usage when not enough arguments were provided.
+	 *
+	 * @return The overload with the lowest arity, or null if there are no invokable overloads.
+	 */
+	public CommandMethod getLowestArity() {
+		for (CommandMethod[] overloads : byArity) {
+			if (overloads != null) return overloads[0];
+		}
+		return rawArguments.length != 0 ? rawArguments[0] : null;
+	}
+
+	/**
+	 * Resolves the candidates for each amount of arguments.
+	 */
+	private void resolveCandidates() {
+		CommandMethod[][] resolved = new CommandMethod[byArity.length][];
+		CommandMethod[] lower = NO_CANDIDATES;
+		for (int arity = 0; arity < byArity.length; arity++) {
+			if (byArity[arity] != null) {
+				resolved[arity] = byArity[arity];
+				lower = byArity[arity];
+			} else {
+				resolved[arity] = rawArguments.length != 0 ? rawArguments : lower;
+			}
+		}
+
+		candidates = resolved;
+		overflowCandidates = rawArguments.length != 0 ? rawArguments : lower;
+	}
+
+	/**
+	 * Inserts a CommandMethod into the overloads of an arity, after the other overloads without lazy arguments
+	 * if it has none, otherwise at the end.
+	 *
+	 * @param methods The existing overloads of the arity.
+	 * @param method The CommandMethod to insert.
+	 * @return The new array.
+	 */
+	private static CommandMethod[] insert(CommandMethod[] methods, CommandMethod method) {
+		int position = methods.length;
+		if (!method.takesLazyArguments()) {
+			while (position > 0 && methods[position - 1].takesLazyArguments()) {
+				position--;
+			}
+		}
+
+		CommandMethod[] inserted = new CommandMethod[methods.length + 1];
+		System.arraycopy(methods, 0, inserted, 0, position);
+		inserted[position] = method;
+		System.arraycopy(methods, position, inserted, position + 1, methods.length - position);
+		return inserted;
+	}
+
+	/**
+	 * Appends a CommandMethod to an array of CommandMethods.
+	 *
+	 * @param methods The existing array.
+	 * @param method The CommandMethod to append.
+	 * @return The new array.
+	 */
+	private static CommandMethod[] append(CommandMethod[] methods, CommandMethod method) {
+		CommandMethod[] appended = Arrays.copyOf(methods, methods.length + 1);
+		appended[methods.length] = method;
+		return appended;
+	}
+
+}
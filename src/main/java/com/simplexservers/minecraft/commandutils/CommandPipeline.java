@@ -0,0 +1,204 @@
+package com.simplexservers.minecraft.commandutils;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A two-stage dispatch pipeline for a CommandManager.
+ * <p>
+ * Matching, permission checks and argument parsing are done on a worker pool.
+ * The ready-to-run commands are queued until the platform drains them on the main
+ * thread with {@link #drain()}, which runs as many as fit in the per-tick time budget.
+ * Commands from the console are always drained before commands from players.
+ * </p>
+ *
+ * @author Zach Abney
+ */
+public class CommandPipeline {
+
+	public static final String BUSY_MESSAGE = "§cThe server is busy, please try your command again shortly.";
+
+	/**
+	 * The CommandManager the commands are dispatched to.
+	 */
+	private final CommandManager manager;
+	/**
+	 * The worker pool the commands are parsed on.
+	 */
+	private final Executor workers;
+	/**
+	 * The maximum amount of commands that can be parsing or waiting to be executed.
+	 */
+	private final int capacity;
+	/**
+	 * The time the main thread may spend executing commands each tick, in nanoseconds.
+	 */
+	private volatile long tickBudgetNanos;
+	/**
+	 * The amount of commands that are parsing or waiting to be executed.
+	 */
+	private final AtomicInteger pending = new AtomicInteger();
+	/**
+	 * The parsed commands sent by the console waiting to be executed.
+	 */
+	private final Queue<PendingCommand> consoleQueue = new ConcurrentLinkedQueue<>();
+	/**
+	 * The parsed commands sent by players waiting to be executed.
+	 */
+	private final Queue<PendingCommand> playerQueue = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Constructs a new CommandPipeline.
+	 *
+	 * @param manager The CommandManager the commands are dispatched to.
+	 * @param workers The worker pool the commands are parsed on.
+	 * @param capacity The maximum amount of commands that can be parsing or waiting to be executed.
+	 * @param tickBudget The time the main thread may spend executing commands each tick.
+	 * @param unit The unit of the tick budget.
+	 * @throws IllegalStateException If the CommandManager is not locked.
+	 */
+	public CommandPipeline(CommandManager manager, Executor workers, int capacity, long tickBudget, TimeUnit unit) {
+		if (!manager.isLocked()) throw new IllegalStateException("Only a locked CommandManager can be parsed off the main thread.");
+		if (capacity <= 0) throw new IllegalArgumentException("The capacity must be positive.");
+		this.manager = manager;
+		this.workers = workers;
+		this.capacity = capacity;
+		setTickBudget(tickBudget, unit);
+	}
+
+	/**
+	 * Sets the time the main thread may spend executing commands each tick.
+	 *
+	 * @param tickBudget The time budget per tick.
+	 * @param unit The unit of the tick budget.
+	 */
+	public void setTickBudget(long tickBudget, TimeUnit unit) {
+		this.tickBudgetNanos = unit.toNanos(tickBudget);
+	}
+
+	/**
+	 * Gets the amount of commands that are parsing or waiting to be executed.
+	 *
+	 * @return The amount of pending commands.
+	 */
+	public int getPendingCount() {
+		return pending.get();
+	}
+
+	/**
+	 * Submits a command entered by the user to be parsed off the main thread.
+	 * <p>
+	 * If the pipeline is full the command is rejected and the sender is notified.
+	 * Argument and permission errors are sent to the sender from the worker thread.
+	 * </p>
+	 *
+	 * @param sender The sender of the command.
+	 * @param baseCommand The base of the command.
+	 * @param args The arguments provided with the base command.
+	 * @return true if the command was accepted, false if the pipeline is full.
+	 */
+	public boolean submit(CommandInvoker sender, String baseCommand, String[] args) {
+		if (pending.incrementAndGet() > capacity) {
+			pending.decrementAndGet();
+			sender.sendMessage(BUSY_MESSAGE);
+			return false;
+		}
+
+		try {
+			workers.execute(() -> parse(sender, baseCommand, args));
+		} catch (RejectedExecutionException e) {
+			pending.decrementAndGet();
+			sender.sendMessage(BUSY_MESSAGE);
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Parses a submitted command and queues it to be executed on the main thread.
+	 *
+	 * @param sender The sender of the command.
+	 * @param baseCommand The base of the command.
+	 * @param args The arguments provided with the base command.
+	 */
+	private void parse(CommandInvoker sender, String baseCommand, String[] args) {
+		boolean queued = false;
+		try {
+			MatchedCommandMethod matchedMethod = manager.matchCommand(sender, baseCommand, args);
+			if (matchedMethod != null && manager.checkAccess(sender, baseCommand, matchedMethod)) {
+				PendingCommand command = new PendingCommand(sender, baseCommand, matchedMethod);
+				(sender.isPlayer() ? playerQueue : consoleQueue).add(command);
+				queued = true;
+			}
+		} catch (RuntimeException e) {
+			Logger.getGlobal().log(Level.SEVERE, "An error occurred while parsing the " + baseCommand + " command", e);
+			sender.sendMessage("§cAn error occurred while executing the " + baseCommand + " command.");
+		} finally {
+			if (!queued) pending.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Executes the queued commands on the calling thread until the tick budget runs out.
+	 * This should be called once per tick from the main thread.
+	 * At least one command is executed per call so the queue always makes progress.
+	 *
+	 * @return The amount of commands executed.
+	 */
+	public int drain() {
+		long deadline = System.nanoTime() + tickBudgetNanos;
+		int executed = 0;
+		do {
+			PendingCommand command = consoleQueue.poll();
+			if (command == null) command = playerQueue.poll();
+			if (command == null) break;
+
+			pending.decrementAndGet();
+			manager.executeCommand(command.sender, command.baseCommand, command.matchedMethod);
+			executed++;
+		} while (System.nanoTime() - deadline < 0);
+
+		return executed;
+	}
+
+	/**
+	 * A parsed command waiting to be executed on the main thread.
+	 */
+	private static class PendingCommand {
+
+		/**
+		 * The sender of the command.
+		 */
+		private final CommandInvoker sender;
+		/**
+		 * The base of the command.
+		 */
+		private final String baseCommand;
+		/**
+		 * The matched CommandMethod and its parsed arguments.
+		 */
+		private final MatchedCommandMethod matchedMethod;
+
+		/**
+		 * Constructs a new PendingCommand.
+		 *
+		 * @param sender The sender of the command.
+		 * @param baseCommand The base of the command.
+		 * @param matchedMethod The matched CommandMethod and its parsed arguments.
+		 */
+		private PendingCommand(CommandInvoker sender, String baseCommand, MatchedCommandMethod matchedMethod) {
+			this.sender = sender;
+			this.baseCommand = baseCommand;
+			this.matchedMethod = matchedMethod;
+		}
+
+	}
+
+}
@@ -59,4 +59,68 @@ public @interface CommandProperties {
 	 */
 	int assertEnvironment() default EnvironmentFlags.ALL;
 
+	/**
+	 * How an identical invocation is handled while a previous one is still executing.
+	 * Invocations are identical when they have the same invoker and parsed arguments.
+	 *
+	 * @return The policy for duplicate invocations.
+	 */
+	DuplicatePolicy duplicates() default DuplicatePolicy.ALLOW;
+
+	/**
+	 * Sample arguments used to warm up the command, each entered after the full command.
+	 * If there are none, a sample is generated from the parameter types where possible.
+	 *
+	 * @return The sample arguments of the command.
+	 */
+	String[] samples() default {};
+
+	/**
+	 * The index of the parsed argument whose value decides which node the command runs on,
+	 * or -1 if the command always runs locally.
+	 * <p>
+	 * Note: The index excludes the invoker, 0 is the first argument after it.
+	 * </p>
+	 *
+	 * @return The index of the routing argument.
+	 */
+	int routingArgument() default -1;
+
+	/**
+	 * The time in milliseconds the messages sent by the command are cached for and replayed
+	 * instead of executing the command again, or 0 if the command isn't cached.
+	 * <p>
+	 * Note: Only commands that don't change any state should be cached, and a cached command
+	 * must take a CommandInvoker as its first parameter so the messages it sends can be captured.
+	 * </p>
+	 *
+	 * @return The time to live of the cached messages.
+	 */
+	long cacheTtl() default 0;
+
+	/**
+	 * Which invocations share cached messages, only used when {@link #cacheTtl()} is set.
+	 *
+	 * @return The scope of the cached messages.
+	 */
+	CacheScope cacheScope() default CacheScope.GLOBAL;
+
+	/**
+	 * The index of the argument that expands to many targets, or -1 if the command has no targets argument.
+	 * The argument is parsed by the targets parser registered for its type, and the command is executed once per target.
+	 * <p>
+	 * Note: The index excludes the invoker, 0 is the first argument after it.
+	 * </p>
+	 *
+	 * @return The index of the targets argument.
+	 */
+	int fanOutArgument() default -1;
+
+	/**
+	 * How the command is executed for each target, only used when {@link #fanOutArgument()} is set.
+	 *
+	 * @return The fan-out mode of the command.
+	 */
+	FanOutMode fanOut() default FanOutMode.SERIAL;
+
 }
\ No newline at end of file
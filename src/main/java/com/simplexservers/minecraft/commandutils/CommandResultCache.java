@@ -0,0 +1,221 @@
+package com.simplexservers.minecraft.commandutils;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caches the messages sent by commands with a {@link CommandProperties#cacheTtl()} and replays them
+ * to later invocations, skipping the command entirely until the cached messages expire.
+ * <p>
+ * The CommandManager composes the cache around cached commands only, as their innermost interceptor,
+ * so the other interceptors run on every invocation, including cache hits, and an invocation they veto
+ * never reaches the cache.
+ * The cache holds a bounded amount of entries and evicts the least recently used entry when it's full.
+ * Concurrent invocations that miss the cache each execute the command, use {@link DuplicatePolicy#JOIN}
+ * to have an invoker's identical invocations join the first one and receive its messages instead.
+ * </p>
+ * <p>
+ * The messages are captured by handing the command a CommandInvoker that records them, so only
+ * commands that take a CommandInvoker as their first parameter can be cached.
+ * </p>
+ *
+ * @author Zach Abney
+ */
+public class CommandResultCache implements CommandInterceptor {
+
+	/**
+	 * The maximum amount of entries held.
+	 */
+	private final int maxEntries;
+	/**
+	 * The cached messages by invocation, in least recently used order.
+	 */
+	private final Map<CacheKey, CachedResult> entries;
+
+	/**
+	 * Constructs a new CommandResultCache.
+	 *
+	 * @param maxEntries The maximum amount of entries held.
+	 */
+	public CommandResultCache(int maxEntries) {
+		if (maxEntries <= 0) throw new IllegalArgumentException("The maximum amount of entries must be positive.");
+		this.maxEntries = maxEntries;
+		this.entries = new LinkedHashMap<CacheKey, CachedResult>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<CacheKey, CachedResult> eldest) {
+				return size() > CommandResultCache.this.maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Replays the cached messages of the invocation if there are any, otherwise executes the command
+	 * and caches the messages it sends.
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void intercept(CommandInvoker sender, CommandMethod method, Object[] args, CommandExecutor next) throws Exception {
+		CommandDescriptor meta = method.getMeta();
+		if (meta.getCacheTtl() <= 0) {
+			next.execute(sender, args);
+			return;
+		}
+
+		CacheKey key = new CacheKey(method, args, scopeOf(sender, meta.getCacheScope()));
+		long now = System.currentTimeMillis();
+		CachedResult cached;
+		synchronized (entries) {
+			cached = entries.get(key);
+			if (cached != null && cached.expiresAt - now <= 0) {
+				entries.remove(key);
+				cached = null;
+			}
+		}
+
+		if (cached != null) {
+			for (String message : cached.messages) {
+				sender.sendMessage(message);
+			}
+			return;
+		}
+
+		// The cache wraps the body directly, so the messages are only cached once the body has completed.
+		CapturingInvoker capturer = new CapturingInvoker(sender);
+		next.execute(capturer, args);
+		CachedResult result = new CachedResult(capturer.getMessages(), now + meta.getCacheTtl());
+		synchronized (entries) {
+			entries.put(key, result);
+		}
+	}
+
+	/**
+	 * Gets the amount of entries held, including expired entries that haven't been evicted yet.
+	 *
+	 * @return The amount of entries held.
+	 */
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * Removes every cached entry of a CommandMethod, used when the state it reads has changed.
+	 *
+	 * @param method The CommandMethod to invalidate.
+	 */
+	public void invalidate(CommandMethod method) {
+		synchronized (entries) {
+			entries.keySet().removeIf(key -> key.method == method);
+		}
+	}
+
+	/**
+	 * Removes every cached entry.
+	 */
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	/**
+	 * Gets the part of the cache key that separates invokers within a scope.
+	 * <p>
+	 * Invokers are identified by their name, like routed commands, rather than their native invoker,
+	 * so the cache doesn't keep native invokers such as players alive. Only invokers that compile their
+	 * permissions are grouped by their permission set, as building the set for any other invoker checks
+	 * every permission node, so their messages are kept per invoker instead.
+	 * </p>
+	 *
+	 * @param sender The sender of the command.
+	 * @param scope The scope of the cached messages.
+	 * @return The scope key, or null if every invoker shares the cached messages.
+	 */
+	private static Object scopeOf(CommandInvoker sender, CacheScope scope) {
+		switch (scope) {
+			case GLOBAL:
+				return null;
+			case PERMISSIONS:
+				if (sender instanceof PermissionCompilingInvoker) {
+					// The compiled permissions are the permission set when they cover every node.
+					PermissionNode[] nodes = PermissionNode.all();
+					CompiledPermissions compiled = ((PermissionCompilingInvoker) sender).getCompiledPermissions();
+					if (nodes.length == 0 || compiled.covers(nodes[nodes.length - 1])) return compiled.getGranted();
+				}
+				return sender.getName();
+			default:
+				return sender.getName();
+		}
+	}
+
+	/**
+	 * Identifies the invocations sharing cached messages by their CommandMethod, parsed arguments and scope key.
+	 */
+	private static class CacheKey {
+
+		private final CommandMethod method;
+		private final Object[] arguments;
+		private final Object scope;
+		private final int hash;
+
+		/**
+		 * Constructs a new CacheKey.
+		 *
+		 * @param method The CommandMethod.
+		 * @param arguments The parsed arguments.
+		 * @param scope The scope key, or null if every invoker shares the cached messages.
+		 */
+		private CacheKey(CommandMethod method, Object[] arguments, Object scope) {
+			this.method = method;
+			this.arguments = arguments;
+			this.scope = scope;
+			this.hash = 31 * (31 * System.identityHashCode(method) + Arrays.deepHashCode(arguments)) + (scope == null ? 0 : scope.hashCode());
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof CacheKey)) return false;
+			CacheKey other = (CacheKey) o;
+			return hash == other.hash && method == other.method && Arrays.deepEquals(arguments, other.arguments)
+					&& (scope == null ? other.scope == null : scope.equals(other.scope));
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+	}
+
+	/**
+	 * The messages sent by an invocation and when they expire.
+	 */
+	private static class CachedResult {
+
+		/**
+		 * The messages sent by the invocation, in order.
+		 */
+		private final String[] messages;
+		/**
+		 * The System.currentTimeMillis() the messages expire at.
+		 */
+		private final long expiresAt;
+
+		/**
+		 * Constructs a new CachedResult.
+		 *
+		 * @param messages The messages sent by the invocation, in order.
+		 * @param expiresAt The System.currentTimeMillis() the messages expire at.
+		 */
+		private CachedResult(String[] messages, long expiresAt) {
+			this.messages = messages;
+			this.expiresAt = expiresAt;
+		}
+
+	}
+
+}
@@ -0,0 +1,326 @@
+package com.simplexservers.minecraft.commandutils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Routes commands to the node that owns their routing key.
+ * <p>
+ * A command opts in to routing with {@link CommandProperties#routingArgument()}. Once its arguments
+ * have been parsed, the value of the routing argument is resolved to a node. Commands owned by another
+ * node are encoded and batched per destination instead of being executed, and each batch is sent through
+ * the CommandTransport when it is full or when {@link #flush()} is called, usually once per tick.
+ * The receiving router resolves the invoker by name and invokes the already matched overload locally.
+ * </p>
+ * <p>
+ * A routed command is encoded as the matched subcommand, the index of the matched overload and the raw
+ * arguments, so the receiving node skips matching and overload resolution. The parsed arguments themselves
+ * aren't sent, as they're objects local to the node, such as players, so the raw arguments are parsed again.
+ * Every node is expected to register the same commands, a command whose overload doesn't exist on the
+ * receiving node is matched again from its raw arguments.
+ * </p>
+ *
+ * @author Zach Abney
+ */
+public class CommandRouter {
+
+	/**
+	 * The CommandManager the commands are dispatched through on this node.
+	 */
+	private final CommandManager manager;
+	/**
+	 * The id of this node.
+	 */
+	private final String localNode;
+	/**
+	 * Resolves the node that owns a routing key.
+	 */
+	private final NodeResolver resolver;
+	/**
+	 * Carries the batches of commands between nodes.
+	 */
+	private final CommandTransport transport;
+	/**
+	 * Resolves the local invoker of a command received from another node by its name.
+	 */
+	private final Function<String, CommandInvoker> invokers;
+	/**
+	 * The amount of commands a batch may hold before it is sent.
+	 */
+	private final int maxBatchSize;
+	/**
+	 * The batches waiting to be sent to each node.
+	 */
+	private final Map<String, Batch> batches = new ConcurrentHashMap<>();
+	/**
+	 * Whether the current thread is dispatching commands received from another node.
+	 */
+	private final ThreadLocal<Boolean> receiving = ThreadLocal.withInitial(() -> false);
+
+	/**
+	 * Constructs a new CommandRouter, binds it to the transport and attaches it to the CommandManager.
+	 *
+	 * @param manager The CommandManager the commands are dispatched through on this node.
+	 * @param localNode The id of this node.
+	 * @param resolver Resolves the node that owns a routing key.
+	 * @param transport Carries the batches of commands between nodes.
+	 * @param invokers Resolves the local invoker of a received command by its name, returning null if there is none.
+	 * @param maxBatchSize The amount of commands a batch may hold before it is sent.
+	 */
+	public CommandRouter(CommandManager manager, String localNode, NodeResolver resolver, CommandTransport transport,
+			Function<String, CommandInvoker> invokers, int maxBatchSize) {
+		if (maxBatchSize <= 0) throw new IllegalArgumentException("The batch size must be positive.");
+		this.manager = manager;
+		this.localNode = localNode;
+		this.resolver = resolver;
+		this.transport = transport;
+		this.invokers = invokers;
+		this.maxBatchSize = maxBatchSize;
+
+		transport.bind(localNode, this);
+		manager.setRouter(this);
+	}
+
+	/**
+	 * Gets the id of this node.
+	 *
+	 * @return The id of this node.
+	 */
+	public String getLocalNode() {
+		return localNode;
+	}
+
+	/**
+	 * Queues the command to be sent to the node that owns its routing key.
+	 *
+	 * @param sender The sender of the command.
+	 * @param baseCommand The base of the command.
+	 * @param matchedMethod The matched CommandMethod and its parsed arguments.
+	 * @return true if the command was queued for another node, false if it should be executed locally.
+	 */
+	protected boolean route(CommandInvoker sender, String baseCommand, MatchedCommandMethod matchedMethod) {
+		int routingArgument = matchedMethod.getMethod().getMeta().getRoutingArgument();
+		if (routingArgument < 0 || routingArgument >= matchedMethod.getArguments().length) return false;
+		// Commands received from another node always run here, so disagreeing resolvers can't bounce them.
+		if (receiving.get()) return false;
+
+		String node = resolver.resolveNode(matchedMethod.getArguments()[routingArgument]);
+		if (node == null || node.equals(localNode)) return false;
+
+		CommandOverloads overloads = manager.lookupOverloads(baseCommand, matchedMethod.getSubcommand());
+		int overload = overloads != null ? overloads.getMethods().indexOf(matchedMethod.getMethod()) : -1;
+		if (overload < 0) return false;
+
+		byte[] full = batches.computeIfAbsent(node, key -> new Batch()).add(sender, baseCommand, matchedMethod, overload, maxBatchSize);
+		if (full != null) transport.send(node, full);
+		return true;
+	}
+
+	/**
+	 * Sends every pending batch to its node.
+	 *
+	 * @return The amount of batches sent.
+	 */
+	public int flush() {
+		int sent = 0;
+		for (Map.Entry<String, Batch> entry : batches.entrySet()) {
+			byte[] batch = entry.getValue().drain();
+			if (batch != null) {
+				transport.send(entry.getKey(), batch);
+				sent++;
+			}
+		}
+		return sent;
+	}
+
+	/**
+	 * Dispatches a batch of commands received from another node.
+	 * Commands whose invoker isn't known on this node are dropped.
+	 *
+	 * @param batch The encoded batch of commands.
+	 */
+	public void receive(byte[] batch) {
+		List<String> dropped = null;
+		receiving.set(true);
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(batch))) {
+			List<String> strings = new ArrayList<>();
+			while (in.available() > 0) {
+				String invokerName = readString(in, strings);
+				String baseCommand = readString(in, strings);
+				String subcommand = readString(in, strings);
+				int overload = readVarInt(in);
+				String[] args = new String[readVarInt(in)];
+				for (int i = 0; i < args.length; i++) {
+					args[i] = readString(in, strings);
+				}
+
+				CommandInvoker invoker = invokers.apply(invokerName);
+				if (invoker == null) {
+					if (dropped == null) dropped = new ArrayList<>();
+					dropped.add(invokerName);
+					continue;
+				}
+				manager.invokeMatched(invoker, baseCommand, subcommand, overload, args);
+			}
+		} catch (IOException e) {
+			Logger.getGlobal().log(Level.SEVERE, "Received a corrupt batch of routed commands on node " + localNode + ".", e);
+		} finally {
+			receiving.set(false);
+		}
+
+		if (dropped != null) {
+			Logger.getGlobal().log(Level.WARNING, "Dropped routed commands for unknown invokers " + dropped + " on node " + localNode + ".");
+		}
+	}
+
+	/**
+	 * Reads a string reference written by a Batch, adding the string to the table if it's written out.
+	 *
+	 * @param in The stream to read from.
+	 * @param strings The strings read so far from the batch.
+	 * @return The string read.
+	 * @throws IOException If the string can't be read.
+	 */
+	private static String readString(DataInputStream in, List<String> strings) throws IOException {
+		int reference = readVarInt(in);
+		if (reference != 0) {
+			if (reference > strings.size()) throw new IOException("Unknown string reference " + reference + ".");
+			return strings.get(reference - 1);
+		}
+
+		byte[] bytes = new byte[readVarInt(in)];
+		in.readFully(bytes);
+		String string = new String(bytes, StandardCharsets.UTF_8);
+		strings.add(string);
+		return string;
+	}
+
+	/**
+	 * Reads a variable length integer.
+	 *
+	 * @param in The stream to read from.
+	 * @return The number read.
+	 * @throws IOException If the number can't be read or is too large.
+	 */
+	private static int readVarInt(DataInputStream in) throws IOException {
+		int value = 0;
+		int shift = 0;
+		int b;
+		do {
+			if (shift > 28) throw new IOException("Variable length integer is too large.");
+			b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		if (value < 0) throw new IOException("Variable length integer is negative.");
+		return value;
+	}
+
+	/**
+	 * The encoded commands waiting to be sent to a node.
+	 * <p>
+	 * Each command is written as the invoker name, the base command, the matched subcommand,
+	 * the index of the matched overload, the amount of arguments and the raw arguments after the subcommand.
+	 * Numbers are variable length integers. Strings are written out the first time they appear in the batch,
+	 * as a 0 followed by their UTF-8 length and bytes, and referenced by their position in the batch afterwards.
+	 * </p>
+	 */
+	private static class Batch {
+
+		/**
+		 * The buffer the commands are encoded into.
+		 */
+		private ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+		/**
+		 * The references of the strings written out in the batch.
+		 */
+		private final Map<String, Integer> strings = new HashMap<>();
+		/**
+		 * The amount of commands in the batch.
+		 */
+		private int size = 0;
+
+		/**
+		 * Encodes a command into the batch.
+		 *
+		 * @param sender The sender of the command.
+		 * @param baseCommand The base of the command.
+		 * @param matchedMethod The matched CommandMethod and its parsed arguments.
+		 * @param overload The index of the matched overload among the overloads of the subcommand.
+		 * @param maxBatchSize The amount of commands the batch may hold before it is sent.
+		 * @return The encoded batch if it is full and should be sent, null otherwise.
+		 */
+		private synchronized byte[] add(CommandInvoker sender, String baseCommand, MatchedCommandMethod matchedMethod, int overload, int maxBatchSize) {
+			String[] rawArgs = matchedMethod.getRawArguments();
+			writeString(sender.getName());
+			writeString(baseCommand);
+			writeString(matchedMethod.getSubcommand());
+			writeVarInt(overload);
+			writeVarInt(rawArgs.length);
+			for (String arg : rawArgs) {
+				writeString(arg);
+			}
+
+			return ++size >= maxBatchSize ? drain() : null;
+		}
+
+		/**
+		 * Takes the encoded commands out of the batch.
+		 *
+		 * @return The encoded commands, or null if the batch is empty.
+		 */
+		private synchronized byte[] drain() {
+			if (size == 0) return null;
+			byte[] drained = bytes.toByteArray();
+			bytes = new ByteArrayOutputStream(Math.max(256, drained.length));
+			strings.clear();
+			size = 0;
+			return drained;
+		}
+
+		/**
+		 * Writes a reference to a string, writing the string out if it's the first time it appears in the batch.
+		 *
+		 * @param string The string to write.
+		 */
+		private void writeString(String string) {
+			Integer reference = strings.get(string);
+			if (reference != null) {
+				writeVarInt(reference);
+				return;
+			}
+
+			strings.put(string, strings.size() + 1);
+			byte[] encoded = string.getBytes(StandardCharsets.UTF_8);
+			writeVarInt(0);
+			writeVarInt(encoded.length);
+			bytes.write(encoded, 0, encoded.length);
+		}
+
+		/**
+		 * Writes a non-negative number as a variable length integer, 7 bits per byte.
+		 *
+		 * @param value The number to write.
+		 */
+		private void writeVarInt(int value) {
+			while ((value & ~0x7F) != 0) {
+				bytes.write((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			bytes.write(value);
+		}
+
+	}
+
+}
@@ -0,0 +1,215 @@
+package com.simplexservers.minecraft.commandutils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * An inverted index over the commands of a CommandManager, used to search the help.
+ * <p>
+ * The command, aliases, description and usage of each command are split into lowercase tokens.
+ * Each token maps to the commands containing it and the weight of the field it was found in,
+ * so a query only looks at the commands sharing a token with it. Query tokens also match
+ * indexed tokens they're a prefix of, at half the weight.
+ * The index is a snapshot of the registry version it was built from.
+ * </p>
+ *
+ * @author Zach Abney
+ */
+public class CommandSearchIndex {
+
+	/**
+	 * The weight of a token found in the command.
+	 */
+	private static final int COMMAND_WEIGHT = 8;
+	/**
+	 * The weight of a token found in an alias.
+	 */
+	private static final int ALIAS_WEIGHT = 6;
+	/**
+	 * The weight of a token found in the usage.
+	 */
+	private static final int USAGE_WEIGHT = 2;
+	/**
+	 * The weight of a token found in the description.
+	 */
+	private static final int DESCRIPTION_WEIGHT = 1;
+
+	/**
+	 * The registry version the index was built from.
+	 */
+	private final int version;
+	/**
+	 * The indexed commands, each command appearing once.
+	 */
+	private final CommandDescriptor[] commands;
+	/**
+	 * The indexed tokens in sorted order, so the tokens sharing a prefix are adjacent.
+	 */
+	private final String[] tokens;
+	/**
+	 * The ids of the commands containing each token, parallel to the tokens.
+	 */
+	private final int[][] postings;
+	/**
+	 * The weight of each token in each command containing it, parallel to the postings.
+	 */
+	private final int[][] weights;
+
+	/**
+	 * Builds the index over the commands currently registered with the CommandManager.
+	 *
+	 * @param manager The CommandManager to index.
+	 */
+	public CommandSearchIndex(CommandManager manager) {
+		this.version = manager.getVersion();
+
+		List<CommandDescriptor> indexed = new ArrayList<>();
+		Set<String> added = new HashSet<>();
+		for (List<CommandDescriptor> subcommandMetas : manager.getCommandMetas()) {
+			for (CommandDescriptor meta : subcommandMetas) {
+				// Overloads share the command, index it once.
+				if (added.add(meta.getCommand())) indexed.add(meta);
+			}
+		}
+		this.commands = indexed.toArray(new CommandDescriptor[0]);
+
+		// Token -> command id -> highest weight the token has in the command
+		TreeMap<String, Map<Integer, Integer>> index = new TreeMap<>();
+		for (int id = 0; id < commands.length; id++) {
+			CommandDescriptor meta = commands[id];
+			addTokens(index, id, meta.getCommand(), COMMAND_WEIGHT);
+			for (String alias : meta.getAliases()) {
+				addTokens(index, id, alias, ALIAS_WEIGHT);
+			}
+			addTokens(index, id, meta.getUsage(), USAGE_WEIGHT);
+			addTokens(index, id, meta.getDescription(), DESCRIPTION_WEIGHT);
+		}
+
+		this.tokens = new String[index.size()];
+		this.postings = new int[index.size()][];
+		this.weights = new int[index.size()][];
+		int i = 0;
+		for (Map.Entry<String, Map<Integer, Integer>> entry : index.entrySet()) {
+			tokens[i] = entry.getKey();
+			postings[i] = new int[entry.getValue().size()];
+			weights[i] = new int[entry.getValue().size()];
+			int j = 0;
+			for (Map.Entry<Integer, Integer> posting : entry.getValue().entrySet()) {
+				postings[i][j] = posting.getKey();
+				weights[i][j] = posting.getValue();
+				j++;
+			}
+			i++;
+		}
+	}
+
+	/**
+	 * Gets the registry version the index was built from.
+	 *
+	 * @return The registry version.
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Searches for the commands matching every token of the query that the invoker has access to.
+	 *
+	 * @param query The search query.
+	 * @param invoker The invoker searching, or null to not filter by permission.
+	 * @param limit The maximum amount of results.
+	 * @return The matching commands, best match first.
+	 */
+	public List<CommandDescriptor> search(String query, CommandInvoker invoker, int limit) {
+		String[] queryTokens = tokenize(query);
+		if (queryTokens.length == 0 || limit <= 0) return new ArrayList<>(0);
+
+		int[] scores = null;
+		for (String queryToken : queryTokens) {
+			int[] tokenScores = new int[commands.length];
+			boolean matched = false;
+
+			// Every indexed token starting with the query token is adjacent in the sorted tokens.
+			int start = Arrays.binarySearch(tokens, queryToken);
+			for (int i = start < 0 ? -start - 1 : start; i < tokens.length && tokens[i].startsWith(queryToken); i++) {
+				boolean exact = tokens[i].length() == queryToken.length();
+				for (int j = 0; j < postings[i].length; j++) {
+					int score = exact ? weights[i][j] * 2 : weights[i][j];
+					int id = postings[i][j];
+					if (score > tokenScores[id]) tokenScores[id] = score;
+					matched = true;
+				}
+			}
+			if (!matched) return new ArrayList<>(0);
+
+			// Commands must match every query token.
+			if (scores == null) {
+				scores = tokenScores;
+			} else {
+				for (int id = 0; id < scores.length; id++) {
+					scores[id] = tokenScores[id] == 0 ? 0 : scores[id] + tokenScores[id];
+				}
+			}
+		}
+
+		List<Integer> results = new ArrayList<>();
+		for (int id = 0; id < scores.length; id++) {
+			if (scores[id] == 0) continue;
+			PermissionNode permissionNode = commands[id].getPermissionNode();
+			if (invoker != null && permissionNode != null && !invoker.hasPermission(permissionNode)) continue;
+			results.add(id);
+		}
+
+		int[] finalScores = scores;
+		results.sort((a, b) -> finalScores[a] != finalScores[b] ? finalScores[b] - finalScores[a] : commands[a].getCommand().compareTo(commands[b].getCommand()));
+
+		List<CommandDescriptor> matches = new ArrayList<>(Math.min(limit, results.size()));
+		for (int i = 0; i < results.size() && i < limit; i++) {
+			matches.add(commands[results.get(i)]);
+		}
+		return matches;
+	}
+
+	/**
+	 * Adds the tokens of a field to the index.
+	 *
+	 * @param index The index being built.
+	 * @param id The id of the command the field belongs to.
+	 * @param field The text of the field.
+	 * @param weight The weight of the field.
+	 */
+	private static void addTokens(TreeMap<String, Map<Integer, Integer>> index, int id, String field, int weight) {
+		for (String token : tokenize(field)) {
+			index.computeIfAbsent(token, key -> new HashMap<>()).merge(id, weight, Math::max);
+		}
+	}
+
+	/**
+	 * Splits text into lowercase tokens of letters and digits.
+	 *
+	 * @param text The text to split.
+	 * @return The tokens of the text.
+	 */
+	private static String[] tokenize(String text) {
+		List<String> tokens = new ArrayList<>();
+		int start = -1;
+		for (int i = 0; i <= text.length(); i++) {
+			boolean tokenChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+			if (tokenChar && start < 0) {
+				start = i;
+			} else if (!tokenChar && start >= 0) {
+				tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+				start = -1;
+			}
+		}
+		return tokens.toArray(new String[0]);
+	}
+
+}
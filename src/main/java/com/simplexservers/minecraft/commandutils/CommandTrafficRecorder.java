@@ -0,0 +1,339 @@
+package com.simplexservers.minecraft.commandutils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Records the commands dispatched by a CommandManager to a compact binary file
+ * so the traffic can be replayed offline with a CommandTrafficReplayer.
+ * <p>
+ * Dispatching threads copy each command into a preallocated lock-free RecordRing, dropping it if the
+ * ring is full, and its background writer encodes and writes them so the dispatch never waits on the disk.
+ * The file starts with a header, followed by one entry per command. Invoker classes,
+ * invoker names and base commands are written once and referenced by id afterwards,
+ * all numbers are written as variable length integers and strings are length prefixed UTF-8.
+ * </p>
+ *
+ * @author Zach Abney
+ */
+public class CommandTrafficRecorder implements Closeable {
+
+	/**
+	 * The default amount of commands the ring buffer holds.
+	 */
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	/**
+	 * The magic number the file starts with.
+	 */
+	private static final int MAGIC = 0x43545243; // CTRC
+	/**
+	 * The version of the file format.
+	 */
+	private static final int VERSION = 2;
+	/**
+	 * The entry tag that defines the next string id.
+	 */
+	private static final int TAG_STRING = 0;
+	/**
+	 * The entry tag of a command invoked by a non-player.
+	 */
+	private static final int TAG_COMMAND = 1;
+	/**
+	 * The entry tag of a command invoked by a player.
+	 */
+	private static final int TAG_PLAYER_COMMAND = 2;
+
+	/**
+	 * The ring buffer the commands are copied into and drained from.
+	 */
+	private final RecordRing<TrafficRecord> ring;
+	/**
+	 * The stream to the recording file, only used by the writer once it has started.
+	 */
+	private final DataOutputStream out;
+	/**
+	 * The ids of the strings already written.
+	 */
+	private final Map<String, Integer> stringIds = new HashMap<>();
+	/**
+	 * The System.nanoTime() the recording started at.
+	 */
+	private final long startTime;
+	/**
+	 * The offset of the last recorded command, in nanoseconds since the recording started.
+	 */
+	private long lastOffset = 0;
+
+	/**
+	 * Constructs a new CommandTrafficRecorder writing to the given file with the default capacity.
+	 *
+	 * @param file The file to record to, replaced if it exists.
+	 * @throws IOException If the file can't be written to.
+	 */
+	public CommandTrafficRecorder(Path file) throws IOException {
+		this(file, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructs a new CommandTrafficRecorder writing to the given file and starts its writer.
+	 *
+	 * @param file The file to record to, replaced if it exists.
+	 * @param capacity The amount of commands the ring buffer holds, rounded up to a power of two.
+	 * @throws IOException If the file can't be written to.
+	 */
+	public CommandTrafficRecorder(Path file, int capacity) throws IOException {
+		this.ring = new RecordRing<>("CommandTrafficRecorder Writer", capacity, false, TrafficRecord::new,
+				new RecordRing.Drain<TrafficRecord>() {
+					@Override
+					public void write(TrafficRecord record) throws IOException {
+						writeRecord(record);
+					}
+
+					@Override
+					public void flush() throws IOException {
+						out.flush();
+					}
+				});
+
+		this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024));
+		out.writeInt(MAGIC);
+		out.writeByte(VERSION);
+		out.writeLong(System.currentTimeMillis());
+		this.startTime = System.nanoTime();
+		ring.start();
+	}
+
+	/**
+	 * Gets the amount of commands dropped because the ring buffer was full.
+	 *
+	 * @return The amount of dropped commands.
+	 */
+	public long getDroppedCount() {
+		return ring.getDroppedCount();
+	}
+
+	/**
+	 * Copies a command entered by an invoker into the ring buffer, dropping it if the buffer is full.
+	 *
+	 * @param invoker The invoker of the command.
+	 * @param baseCommand The base of the command.
+	 * @param args The arguments provided with the base command.
+	 */
+	public void record(CommandInvoker invoker, String baseCommand, String[] args) {
+		TrafficRecord record = ring.claim();
+		if (record == null) return;
+
+		record.offset = System.nanoTime() - startTime;
+		record.invokerClass = invoker.getNativeInvoker().getClass().getName();
+		record.invokerName = invoker.getName();
+		record.player = invoker.isPlayer();
+		record.baseCommand = baseCommand;
+		record.args = args;
+		ring.publish(record);
+	}
+
+	/**
+	 * Stops the writer after it has written every command in the ring buffer, then flushes and closes the file.
+	 *
+	 * @throws IOException If the file can't be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		ring.close();
+		out.close();
+	}
+
+	/**
+	 * Writes the entry of a recorded command, along with the definitions of any new strings it references.
+	 *
+	 * @param record The recorded command.
+	 * @throws IOException If the entry can't be written.
+	 */
+	private void writeRecord(TrafficRecord record) throws IOException {
+		// Commands may be published slightly out of order, keep the offsets ascending.
+		long offset = Math.max(record.offset, lastOffset);
+		int invokerClassId = stringId(record.invokerClass);
+		int invokerNameId = stringId(record.invokerName);
+		int baseCommandId = stringId(record.baseCommand);
+
+		out.writeByte(record.player ? TAG_PLAYER_COMMAND : TAG_COMMAND);
+		writeVarLong(out, offset - lastOffset);
+		writeVarLong(out, invokerClassId);
+		writeVarLong(out, invokerNameId);
+		writeVarLong(out, baseCommandId);
+		writeVarLong(out, record.args.length);
+		for (String arg : record.args) {
+			writeString(out, arg);
+		}
+		lastOffset = offset;
+	}
+
+	/**
+	 * Gets the id of a string, writing its definition if it hasn't been written before.
+	 *
+	 * @param string The string to get the id of.
+	 * @return The id of the string.
+	 * @throws IOException If the definition can't be written.
+	 */
+	private int stringId(String string) throws IOException {
+		Integer id = stringIds.get(string);
+		if (id != null) return id;
+
+		id = stringIds.size();
+		stringIds.put(string, id);
+		out.writeByte(TAG_STRING);
+		writeString(out, string);
+		return id;
+	}
+
+	/**
+	 * Reads every command from a recording file.
+	 *
+	 * @param file The recording file to read.
+	 * @return The recorded commands in the order they were invoked.
+	 * @throws IOException If the file can't be read or isn't a recording.
+	 */
+	public static List<RecordedCommand> read(Path file) throws IOException {
+		List<RecordedCommand> commands = new ArrayList<>();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024))) {
+			try {
+				if (in.readInt() != MAGIC) throw new IOException(file + " is not a command traffic recording.");
+				int version = in.readUnsignedByte();
+				if (version != VERSION) throw new IOException("Unsupported command traffic recording version " + version + ".");
+				in.readLong(); // The wall clock time the recording started at
+			} catch (EOFException e) {
+				throw new IOException(file + " is not a command traffic recording, its header is missing.", e);
+			}
+
+			List<String> strings = new ArrayList<>();
+			long offset = 0;
+			int tag;
+			while ((tag = in.read()) != -1) {
+				switch (tag) {
+					case TAG_STRING:
+						strings.add(readString(in));
+						break;
+					case TAG_COMMAND:
+					case TAG_PLAYER_COMMAND:
+						offset += readVarLong(in);
+						String invokerClass = strings.get((int) readVarLong(in));
+						String invokerName = strings.get((int) readVarLong(in));
+						String baseCommand = strings.get((int) readVarLong(in));
+						String[] args = new String[(int) readVarLong(in)];
+						for (int i = 0; i < args.length; i++) {
+							args[i] = readString(in);
+						}
+						commands.add(new RecordedCommand(offset, invokerClass, invokerName, tag == TAG_PLAYER_COMMAND, baseCommand, args));
+						break;
+					default:
+						throw new IOException("Corrupt command traffic recording, unknown entry " + tag + ".");
+				}
+			}
+		} catch (EOFException e) {
+			// The recording was cut off mid entry, keep what was read.
+			Logger.getGlobal().log(Level.WARNING, "The command traffic recording " + file + " is truncated.");
+		}
+
+		return commands;
+	}
+
+	/**
+	 * Writes a non-negative number as a variable length integer, 7 bits per byte.
+	 *
+	 * @param out The stream to write to.
+	 * @param value The number to write.
+	 * @throws IOException If the number can't be written.
+	 */
+	private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	/**
+	 * Writes a string as its UTF-8 length followed by its UTF-8 bytes.
+	 *
+	 * @param out The stream to write to.
+	 * @param string The string to write.
+	 * @throws IOException If the string can't be written.
+	 */
+	private static void writeString(DataOutputStream out, String string) throws IOException {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		writeVarLong(out, bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Reads a string written by {@link #writeString(DataOutputStream, String)}.
+	 *
+	 * @param in The stream to read from.
+	 * @return The string read.
+	 * @throws IOException If the string can't be read.
+	 */
+	private static String readString(DataInputStream in) throws IOException {
+		long length = readVarLong(in);
+		if (length > Integer.MAX_VALUE) throw new IOException("Corrupt command traffic recording, string of length " + length + ".");
+		byte[] bytes = new byte[(int) length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Reads a variable length integer.
+	 *
+	 * @param in The stream to read from.
+	 * @return The number read.
+	 * @throws IOException If the number can't be read.
+	 */
+	private static long readVarLong(DataInputStream in) throws IOException {
+		long value = 0;
+		int shift = 0;
+		int b;
+		do {
+			b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	/**
+	 * A preallocated slot in the ring buffer.
+	 */
+	private static class TrafficRecord extends RecordRing.Slot {
+
+		private long offset;
+		private String invokerClass;
+		private String invokerName;
+		private boolean player;
+		private String baseCommand;
+		private String[] args;
+
+		@Override
+		void clear() {
+			invokerClass = null;
+			invokerName = null;
+			baseCommand = null;
+			args = null;
+		}
+
+	}
+
+}
@@ -0,0 +1,180 @@
+package com.simplexservers.minecraft.commandutils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Replays recorded command traffic into a CommandManager and measures its throughput and latency.
+ * <p>
+ * The commands are partitioned across the threads by invoker, so each invoker's commands
+ * are replayed in their original order.
+ * </p>
+ *
+ * @author Zach Abney
+ */
+public class CommandTrafficReplayer {
+
+	/**
+	 * The speed to replay the commands as fast as possible, ignoring their timing.
+	 */
+	public static final double FLAT_OUT = 0;
+
+	/**
+	 * The CommandManager the commands are replayed into.
+	 */
+	private final CommandManager manager;
+	/**
+	 * The recorded commands to replay.
+	 */
+	private final List<RecordedCommand> commands;
+	/**
+	 * Creates the invoker each recorded command is replayed as.
+	 */
+	private final Function<RecordedCommand, CommandInvoker> invokerFactory;
+
+	/**
+	 * Constructs a new CommandTrafficReplayer that replays each command as a synthetic
+	 * invoker that has every permission and discards its messages.
+	 *
+	 * @param manager The CommandManager the commands are replayed into.
+	 * @param commands The recorded commands to replay.
+	 * @throws IllegalStateException If the CommandManager is not locked.
+	 */
+	public CommandTrafficReplayer(CommandManager manager, List<RecordedCommand> commands) {
+		this(manager, commands, command -> new ReplayInvoker(command.getInvokerName(), command.isPlayer()));
+	}
+
+	/**
+	 * Constructs a new CommandTrafficReplayer.
+	 *
+	 * @param manager The CommandManager the commands are replayed into.
+	 * @param commands The recorded commands to replay.
+	 * @param invokerFactory Creates the invoker each recorded command is replayed as.
+	 * @throws IllegalStateException If the CommandManager is not locked.
+	 */
+	public CommandTrafficReplayer(CommandManager manager, List<RecordedCommand> commands, Function<RecordedCommand, CommandInvoker> invokerFactory) {
+		if (!manager.isLocked()) throw new IllegalStateException("Only a locked CommandManager can be replayed into from many threads.");
+		this.manager = manager;
+		this.commands = commands;
+		this.invokerFactory = invokerFactory;
+	}
+
+	/**
+	 * Replays the commands and measures how long each dispatch took.
+	 *
+	 * @param speed The multiplier of the original speed, 1 for the original timing or FLAT_OUT to ignore timing.
+	 * @param threads The amount of threads to replay the commands across.
+	 * @return The report of the replay.
+	 * @throws InterruptedException If the replay was interrupted.
+	 */
+	public ReplayReport replay(double speed, int threads) throws InterruptedException {
+		if (speed < 0) throw new IllegalArgumentException("The speed can't be negative.");
+		if (threads <= 0) throw new IllegalArgumentException("There must be at least one thread.");
+
+		// Partition by invoker so each invoker's commands stay in order.
+		List<List<RecordedCommand>> partitions = new ArrayList<>(threads);
+		for (int i = 0; i < threads; i++) {
+			partitions.add(new ArrayList<>());
+		}
+		for (RecordedCommand command : commands) {
+			partitions.get(Math.floorMod(command.getInvokerName().hashCode(), threads)).add(command);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			long startTime = System.nanoTime();
+			List<Future<long[]>> results = new ArrayList<>(threads);
+			for (List<RecordedCommand> partition : partitions) {
+				results.add(executor.submit(() -> replayPartition(partition, speed, startTime)));
+			}
+
+			long[] latencies = new long[commands.size()];
+			int index = 0;
+			for (Future<long[]> result : results) {
+				long[] partitionLatencies = result.get();
+				System.arraycopy(partitionLatencies, 0, latencies, index, partitionLatencies.length);
+				index += partitionLatencies.length;
+			}
+
+			return new ReplayReport(latencies, System.nanoTime() - startTime);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("The replay failed.", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Replays a partition of the commands on the calling thread.
+	 *
+	 * @param partition The commands to replay.
+	 * @param speed The multiplier of the original speed, or FLAT_OUT.
+	 * @param startTime The System.nanoTime() the replay started at.
+	 * @return The latency of each command dispatched, in nanoseconds.
+	 */
+	private long[] replayPartition(List<RecordedCommand> partition, double speed, long startTime) {
+		long[] latencies = new long[partition.size()];
+		for (int i = 0; i < latencies.length; i++) {
+			RecordedCommand command = partition.get(i);
+			if (speed != FLAT_OUT) {
+				long dueTime = startTime + (long) (command.getOffsetNanos() / speed);
+				long wait;
+				while ((wait = dueTime - System.nanoTime()) > 0) {
+					LockSupport.parkNanos(wait);
+				}
+			}
+
+			CommandInvoker invoker = invokerFactory.apply(command);
+			long dispatchStart = System.nanoTime();
+			manager.invokeCommand(invoker, command.getBaseCommand(), command.getArgs());
+			latencies[i] = System.nanoTime() - dispatchStart;
+		}
+
+		return latencies;
+	}
+
+	/**
+	 * A synthetic invoker that has every permission and discards its messages.
+	 */
+	private static class ReplayInvoker extends CommandInvoker<Object> {
+
+		/**
+		 * Whether the recorded invoker was a player.
+		 */
+		private final boolean player;
+
+		/**
+		 * Constructs a new ReplayInvoker.
+		 *
+		 * @param name The name of the recorded invoker.
+		 * @param player Whether the recorded invoker was a player.
+		 */
+		private ReplayInvoker(String name, boolean player) {
+			super(name);
+			this.player = player;
+		}
+
+		@Override
+		public void sendMessage(String message) {
+
+		}
+
+		@Override
+		public boolean hasPermission(String perm) {
+			return true;
+		}
+
+		@Override
+		public boolean isPlayer() {
+			return player;
+		}
+
+	}
+
+}
@@ -0,0 +1,27 @@
+package com.simplexservers.minecraft.commandutils;
+
+/**
+ * Carries batches of routed commands between nodes.
+ *
+ * @author Zach Abney
+ */
+public interface CommandTransport {
+
+	/**
+	 * Binds the router that receives the batches sent to a node.
+	 *
+	 * @param node The id of the node.
+	 * @param router The router of the node.
+	 */
+	void bind(String node, CommandRouter router);
+
+	/**
+	 * Sends a batch of encoded commands to a node.
+	 * Implementations shouldn't wait for the commands to execute, so batches to a node can be pipelined.
+	 *
+	 * @param node The id of the destination node.
+	 * @param batch The encoded batch of commands.
+	 */
+	void send(String node, byte[] batch);
+
+}
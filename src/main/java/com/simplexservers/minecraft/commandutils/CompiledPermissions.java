@@ -0,0 +1,106 @@
+package com.simplexservers.minecraft.commandutils;
+
+import java.util.BitSet;
+
+/**
+ * An invoker's permissions compiled against every interned PermissionNode,
+ * stamped with the version of the invoker's permissions they were compiled from.
+ *
+ * @author Zach Abney
+ */
+public final class CompiledPermissions {
+
+	/**
+	 * The version of the invoker's permissions these were compiled from.
+	 */
+	private final long version;
+	/**
+	 * The granted permission nodes, indexed by id.
+	 */
+	private final BitSet granted;
+	/**
+	 * The amount of interned permission nodes these were compiled against.
+	 */
+	private final int nodeCount;
+
+	/**
+	 * Constructs new CompiledPermissions.
+	 *
+	 * @param version The version of the invoker's permissions these were compiled from.
+	 * @param granted The granted permission nodes, indexed by id.
+	 * @param nodeCount The amount of interned permission nodes these were compiled against.
+	 */
+	private CompiledPermissions(long version, BitSet granted, int nodeCount) {
+		this.version = version;
+		this.granted = granted;
+		this.nodeCount = nodeCount;
+	}
+
+	/**
+	 * Gets the version of the invoker's permissions these were compiled from.
+	 *
+	 * @return The permissions version.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Checks if these were compiled against the given permission node.
+	 *
+	 * @param node The permission node to check for.
+	 * @return true if the node was interned before these were compiled, false otherwise.
+	 */
+	public boolean covers(PermissionNode node) {
+		return node.getId() < nodeCount;
+	}
+
+	/**
+	 * Checks if the permission node was granted.
+	 *
+	 * @param node The permission node to check for.
+	 * @return true if the node was granted, false if it wasn't or isn't covered.
+	 */
+	public boolean has(PermissionNode node) {
+		return granted.get(node.getId());
+	}
+
+	/**
+	 * Gets the granted permission nodes, indexed by id.
+	 * The bit set is shared and must not be modified.
+	 *
+	 * @return The granted permission nodes.
+	 */
+	BitSet getGranted() {
+		return granted;
+	}
+
+	/**
+	 * Brings compiled permissions up to date with the invoker's permissions version.
+	 * <p>
+	 * The previous compilation is returned as is when it's current, only the newly interned nodes
+	 * are checked when just the nodes changed, and everything is recompiled when the version changed.
+	 * </p>
+	 *
+	 * @param previous The previously compiled permissions, or null if there are none.
+	 * @param invoker The invoker to check each permission node against.
+	 * @param version The current version of the invoker's permissions.
+	 * @return The up to date compiled permissions.
+	 */
+	public static CompiledPermissions update(CompiledPermissions previous, CommandInvoker invoker, long version) {
+		int nodeCount = PermissionNode.count();
+		if (previous != null && previous.version == version && previous.nodeCount == nodeCount) return previous;
+
+		boolean extend = previous != null && previous.version == version;
+		BitSet granted = extend ? (BitSet) previous.granted.clone() : new BitSet(nodeCount);
+		PermissionNode[] nodes = PermissionNode.all();
+		for (int id = extend ? previous.nodeCount : 0; id < nodes.length; id++) {
+			if (invoker.hasPermission(nodes[id].getNode())) {
+				granted.set(id);
+			}
+		}
+
+		return new CompiledPermissions(version, granted, nodes.length);
+	}
+
+}
@@ -0,0 +1,24 @@
+package com.simplexservers.minecraft.commandutils;
+
+/**
+ * How a command handles an identical invocation while a previous one is still executing.
+ * Invocations are identical when they have the same invoker, CommandMethod and parsed arguments.
+ *
+ * @author Zach Abney
+ */
+public enum DuplicatePolicy {
+	/**
+	 * Every invocation is executed.
+	 */
+	ALLOW,
+	/**
+	 * The duplicate joins the executing invocation instead of executing itself. The dispatching thread doesn't wait,
+	 * the invoker is sent the messages of the executing invocation once it finishes. The command must take
+	 * a CommandInvoker as its first parameter, so its messages can be captured.
+	 */
+	JOIN,
+	/**
+	 * The duplicate is dropped and the invoker is told the command is already executing.
+	 */
+	DROP
+}
@@ -0,0 +1,24 @@
+package com.simplexservers.minecraft.commandutils;
+
+/**
+ * How a command whose targets argument expands to many targets runs its body for each target.
+ *
+ * @author Zach Abney
+ */
+public enum FanOutMode {
+	/**
+	 * The body runs for each target in turn on the dispatching thread.
+	 */
+	SERIAL,
+	/**
+	 * The targets are partitioned across a fork-join pool. Only for commands that are thread-safe,
+	 * and parallel commands can't be cached.
+	 */
+	PARALLEL,
+	/**
+	 * The targets are split into chunks, each run in its own task on the main thread executor
+	 * so a large selector is spread across ticks. Ticked commands can't be cached or deduplicated,
+	 * as they finish after the dispatching thread has moved on.
+	 */
+	TICKED
+}
@@ -1,7 +1,13 @@
 package com.simplexservers.minecraft.commandutils;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.logging.Level;
 
 import java.util.TreeMap;
@@ -19,7 +25,7 @@ public class GroupedCommand {
 	 */
 	private static Comparator<String> commandComparator = (subcommand1, subcommand2) -> {
 		int compare = subcommand2.length() - subcommand1.length();
-		return compare == 0 ? 1 : compare;
+		return compare == 0 ? subcommand1.compareTo(subcommand2) : compare;
 	};
 
 	/**
@@ -27,9 +33,25 @@ public class GroupedCommand {
 	 */
 	private String baseCommand;
 	/**
-	 * The list of subcommands and their corresponding CommandMethods.
+	 * The list of subcommands and their corresponding overloaded CommandMethods.
 	 */
-	private TreeMap<String, CommandMethod> subcommands = new TreeMap<>(commandComparator); // <Subcommand, CommandMethod>
+	private TreeMap<String, CommandOverloads> subcommands = new TreeMap<>(commandComparator); // <Subcommand, CommandOverloads>
+	/**
+	 * The shared GroupedCommand this one overlays, or null if it isn't an overlay.
+	 */
+	private final GroupedCommand parent;
+	/**
+	 * The subcommands of the parent that are hidden from this overlay.
+	 */
+	private Set<String> hiddenSubcommands;
+	/**
+	 * Whether every subcommand of the parent is hidden from this overlay.
+	 */
+	private boolean parentHidden = false;
+	/**
+	 * The cached metas for the subcommands, or null if they need to be collected.
+	 */
+	private volatile List<CommandDescriptor> subcommandMetas;
 
 	/**
 	 * Constructs a new GroupedCommand with the given command base.
@@ -37,7 +59,19 @@ public class GroupedCommand {
 	 * @param baseCommand The base command.
 	 */
 	protected GroupedCommand(String baseCommand) {
+		this(baseCommand, null);
+	}
+
+	/**
+	 * Constructs a new GroupedCommand that overlays the given shared GroupedCommand.
+	 * Subcommands that aren't attached to the overlay fall through to the parent.
+	 *
+	 * @param baseCommand The base command.
+	 * @param parent The shared GroupedCommand to fall through to, or null if there is none.
+	 */
+	protected GroupedCommand(String baseCommand, GroupedCommand parent) {
 		this.baseCommand = baseCommand;
+		this.parent = parent;
 	}
 
 	/**
@@ -50,28 +84,110 @@ public class GroupedCommand {
 	}
 
 	/**
-	 * Gets the array of metas for the subcommands.
+	 * Gets the metas for the subcommands.
+	 * The list is built once and reused until a subcommand is attached or hidden.
+	 *
+	 * @return The unmodifiable list of CommandDescriptors for each subcommand.
+	 */
+	public List<CommandDescriptor> getSubcommandMetas() {
+		List<CommandDescriptor> metas = subcommandMetas;
+		if (metas != null) return metas;
+
+		ArrayList<CommandDescriptor> collected = new ArrayList<>(subcommands.size());
+		for (CommandMethod method : getSubcommandMethods()) {
+			collected.add(method.getMeta());
+		}
+
+		return subcommandMetas = Collections.unmodifiableList(collected);
+	}
+
+	/**
+	 * Gets the CommandMethods of the subcommands, including those inherited from the parent.
 	 *
-	 * @return The CommandProperties for each subcommand.
+	 * @return The list of CommandMethods for each subcommand.
 	 */
-	public CommandProperties[] getSubcommandMetas() {
-		CommandProperties[] metas = new CommandProperties[subcommands.size()];
-		int index = 0;
-		for (CommandMethod method : subcommands.values()) {
-			metas[index++] = method.getMeta();
+	public List<CommandMethod> getSubcommandMethods() {
+		ArrayList<CommandMethod> methods = new ArrayList<>(subcommands.size());
+		for (GroupedCommand level = this; level != null; level = level.parent) {
+			for (Entry<String, CommandOverloads> subcommandEntry : level.subcommands.entrySet()) {
+				if (level.isVisibleTo(this, subcommandEntry.getKey())) {
+					methods.addAll(subcommandEntry.getValue().getMethods());
+				}
+			}
 		}
 
-		return metas;
+		return methods;
 	}
 
 	/**
 	 * Attaches the subcommand and CommandMethod to the grouped command.
+	 * CommandMethods attached to the same subcommand are resolved as overloads.
 	 *
 	 * @param subcommand The subcommand to attach.
 	 * @param commandMethod The corresponding CommandMethod for the subcommand.
 	 */
 	public void attachSubcommand(String subcommand, CommandMethod commandMethod) {
-		subcommands.put(subcommand, commandMethod);
+		subcommands.computeIfAbsent(subcommand, key -> new CommandOverloads()).add(commandMethod);
+		subcommandMetas = null;
+	}
+
+	/**
+	 * Gets the overloads attached directly to this GroupedCommand, excluding any inherited from the parent.
+	 *
+	 * @return The attached overloads.
+	 */
+	protected Collection<CommandOverloads> getAttachedOverloads() {
+		return subcommands.values();
+	}
+
+	/**
+	 * Hides a subcommand inherited from the parent GroupedCommand.
+	 * Subcommands attached directly to this GroupedCommand are not affected.
+	 *
+	 * @param subcommand The inherited subcommand to hide.
+	 */
+	protected void hideSubcommand(String subcommand) {
+		if (hiddenSubcommands == null) {
+			hiddenSubcommands = new HashSet<>();
+		}
+		hiddenSubcommands.add(subcommand);
+		subcommandMetas = null;
+	}
+
+	/**
+	 * Hides every subcommand inherited from the parent GroupedCommand.
+	 * Subcommands attached directly to this GroupedCommand are not affected.
+	 */
+	protected void hideParent() {
+		parentHidden = true;
+		subcommandMetas = null;
+	}
+
+	/**
+	 * Checks if a subcommand attached to this GroupedCommand is visible through
+	 * every overlay between the requester and this GroupedCommand.
+	 *
+	 * @param requester The GroupedCommand the lookup started from.
+	 * @param subcommand The subcommand attached to this GroupedCommand.
+	 * @return true if the subcommand is visible to the requester, false otherwise.
+	 */
+	private boolean isVisibleTo(GroupedCommand requester, String subcommand) {
+		for (GroupedCommand overlay = requester; overlay != this; overlay = overlay.parent) {
+			if (!overlay.isInheritedVisible(subcommand)) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Checks if an inherited subcommand is neither hidden nor shadowed by this overlay.
+	 *
+	 * @param subcommand The inherited subcommand to check.
+	 * @return true if the subcommand is visible through this overlay, false otherwise.
+	 */
+	private boolean isInheritedVisible(String subcommand) {
+		if (parentHidden) return false;
+		if (hiddenSubcommands != null && hiddenSubcommands.contains(subcommand)) return false;
+		return !subcommands.containsKey(subcommand);
 	}
 
 	/**
@@ -90,32 +206,95 @@ public class GroupedCommand {
 		}
 		String argsString = argsStringBuilder.toString();
 
-		for (Entry<String, CommandMethod> subcommandEntry : subcommands.entrySet()) {
-			if (!argsString.startsWith(subcommandEntry.getKey())) continue;
-			CommandMethod subcommandMethod = subcommandEntry.getValue();
+		Entry<String, CommandOverloads> subcommandEntry = findSubcommand(argsString);
+		if (subcommandEntry == null) return null; // A subcommand could not be found
 
-			// Check to ensure the command is allowed for the current environment.
-			int allowedEnvironments = subcommandMethod.getMeta().assertEnvironment();
-			if (!EnvironmentFlags.hasFlag(EnvironmentFlags.CURRENT_FLAG, allowedEnvironments)) {
-				continue;
-			}
+		String commandArgsString = argsString.substring(subcommandEntry.getKey().length()).trim();
+		// .split() always has a length of 1 so use an empty String array if the args are empty
+		String[] commandArgs = commandArgsString.length() == 0 ? new String[0] : commandArgsString.split(" ");
 
-			String commandArgsString = argsString.substring(subcommandEntry.getKey().length()).trim();
-			// .split() always has a length of 1 so use an empty String array if the args are empty
-			String[] commandArgs = commandArgsString.length() == 0 ? new String[0] : commandArgsString.split(" ");
-			// Gets the array of arguments, built from the arguments provided, that match the method parameters.
-			Object[] parameters;
+		CommandOverloads overloads = subcommandEntry.getValue();
+		CommandMethod[] candidates = overloads.getCandidates(commandArgs.length);
+		if (candidates.length == 0) {
+			String usage = "§cUsage: " + overloads.getLowestArity().getMeta().getUsage();
+			throw new ArgumentParseException("Not enough arguments provided to satisfy method requirements.", "Not enough arguments provided.\n" + usage);
+		}
+
+		// Overloads of the same arity are tie-broken by the first one whose arguments parse.
+		ArgumentParseException firstException = null;
+		for (CommandMethod candidate : candidates) {
 			try {
-				parameters = getArguments(commandArgs, subcommandMethod.getMethod().getParameterTypes());
+				// Gets the array of arguments, built from the arguments provided, that match the method parameters.
+				Object[] parameters = getArguments(commandArgs, candidate);
+				return new MatchedCommandMethod(candidate, subcommandEntry.getKey(), commandArgs, parameters);
 			} catch (ArgumentParseException e) {
 				// There was an issue parsing the arguments
-				String usage = "§cUsage: " + subcommandMethod.getMeta().usage();
-				throw new ArgumentParseException(e.getMessage(), e.getDisplayMessage() + "\n" + usage);
+				if (firstException == null) {
+					String usage = "§cUsage: " + candidate.getMeta().getUsage();
+					firstException = new ArgumentParseException(e.getMessage(), e.getDisplayMessage() + "\n" + usage);
+				}
+			}
+		}
+
+		throw firstException;
+	}
+
+	/**
+	 * Finds the overloads of an exact subcommand, falling through to the parent GroupedCommand if this is an overlay.
+	 *
+	 * @param subcommand The subcommand, empty for the base command itself.
+	 * @return The overloads of the subcommand, or null if there is no such visible subcommand.
+	 */
+	public CommandOverloads findOverloads(String subcommand) {
+		for (GroupedCommand level = this; level != null; level = level.parent) {
+			CommandOverloads overloads = level.subcommands.get(subcommand);
+			if (overloads != null && level.isVisibleTo(this, subcommand)) return overloads;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Finds the most precise subcommand that prefixes the arguments string,
+	 * falling through to the parent GroupedCommand if this is an overlay.
+	 *
+	 * @param argsString The arguments entered by the CommandSender as one string.
+	 * @return The matching subcommand entry, or null if none matches.
+	 */
+	private Entry<String, CommandOverloads> findSubcommand(String argsString) {
+		Entry<String, CommandOverloads> match = null;
+		for (GroupedCommand level = this; level != null; level = level.parent) {
+			Entry<String, CommandOverloads> candidate = level.findLocalSubcommand(argsString, this);
+			// Prefer the more precise subcommand, the closest overlay wins ties.
+			if (candidate != null && (match == null || candidate.getKey().length() > match.getKey().length())) {
+				match = candidate;
 			}
-			return new MatchedCommandMethod(subcommandMethod, parameters);
 		}
 
-		// A subcommand could not be found
+		return match;
+	}
+
+	/**
+	 * Finds the most precise subcommand attached directly to this GroupedCommand
+	 * that prefixes the arguments string.
+	 *
+	 * @param argsString The arguments entered by the CommandSender as one string.
+	 * @param requester The GroupedCommand the lookup started from.
+	 * @return The matching subcommand entry, or null if none matches.
+	 */
+	private Entry<String, CommandOverloads> findLocalSubcommand(String argsString, GroupedCommand requester) {
+		for (Entry<String, CommandOverloads> subcommandEntry : subcommands.entrySet()) {
+			if (!argsString.startsWith(subcommandEntry.getKey())) continue;
+			if (!isVisibleTo(requester, subcommandEntry.getKey())) continue;
+
+			// Check to ensure an overload is allowed for the current environment.
+			if (!subcommandEntry.getValue().isInvokable()) {
+				continue;
+			}
+
+			return subcommandEntry;
+		}
+
 		return null;
 	}
 
@@ -125,19 +304,19 @@ public class GroupedCommand {
 	 * required for the CommandMethod.
 	 *
 	 * @param args The arguments entered by the CommandSender.
-	 * @param parameterTypes The parameter types required for the CommandMethod.
+	 * @param method The CommandMethod the arguments are for.
 	 * @return The array of arguments to be passed to the CommandMethod.
 	 * @throws ArgumentParseException If there is an issue parsing the arguments to the required parameter types.
 	 */
-	private static Object[] getArguments(String[] args, Class<?>[] parameterTypes) throws ArgumentParseException {
-		if (parameterTypes.length == 0) return null; // Method doesn't even take a CommandSender. It shouldn't even be registered
-		if (parameterTypes.length == 1) return new Object[0]; // Method doesn't take additional parameters
-		if (parameterTypes.length == 2 && parameterTypes[1] == String[].class) return new Object[] {args}; // Method takes arguments as parameter
-		if (args.length >= parameterTypes.length - 1) { // Good match, parse each argument
-			Object[] arguments = new Object[parameterTypes.length - 1];
+	static Object[] getArguments(String[] args, CommandMethod method) throws ArgumentParseException {
+		if (method.takesRawArguments()) return new Object[] {args}; // Method takes arguments as parameter
+		int arity = method.getArity();
+		if (arity == 0) return new Object[0]; // Method doesn't take additional parameters
+		if (args.length >= arity) { // Good match, parse each argument
+			Object[] arguments = new Object[arity];
 			for (int i = 0; i < arguments.length; i++) {
 				try {
-					arguments[i] = ParameterType.parseArgument(args[i], parameterTypes[i + 1]); // Throws exception if invalid
+					arguments[i] = method.parseArgument(i, args[i]); // Throws exception if invalid
 				} catch (IllegalArgumentException e) {
 					// Some other issue occurred trying to parse the command. Probably an unsupported parameter type.
 					Logger.getGlobal().log(Level.SEVERE, "Error handling command.", e);
@@ -1,12 +1,26 @@
 package com.simplexservers.minecraft.commandutils;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * A utility class to assist in generating command help pages.
  */
 public class HelpCommandUtil {
 
+	/**
+	 * The default maximum amount of search results.
+	 */
+	public static final int DEFAULT_SEARCH_LIMIT = 10;
+
+	/**
+	 * The search index of each CommandManager, rebuilt when its registry version changes.
+	 */
+	private static final Map<CommandManager, CommandSearchIndex> searchIndexes = Collections.synchronizedMap(new WeakHashMap<>());
+
 	/**
 	 * Generates a detailed help for all the commands registered with the CommandManager.
 	 *
@@ -27,23 +41,23 @@ public class HelpCommandUtil {
 			}
 
 			help.append("§e-------------------------");
-			for (CommandProperties meta : subcmdMetas) {
+			for (CommandDescriptor meta : subcmdMetas) {
 				// Skip if the command has already been added
-				if (addedCommands.contains(meta.command())) {
+				if (addedCommands.contains(meta.getCommand())) {
 					continue;
 				} else {
-					addedCommands.add(meta.command());
+					addedCommands.add(meta.getCommand());
 				}
 
-				help.append("\n§9Command: §6/" + meta.command());
-				help.append("\n§9Description: §f" + meta.description());
-				help.append("\n§9Usage: §f" + meta.usage());
+				help.append("\n§9Command: §6/" + meta.getCommand());
+				help.append("\n§9Description: §f" + meta.getDescription());
+				help.append("\n§9Usage: §f" + meta.getUsage());
 				if (showPermission) {
 					String permission;
-					if (meta.permission().length() == 0) {
+					if (meta.getPermission().length() == 0) {
 						permission = "§fnone";
 					} else {
-						permission = (invoker.hasPermission(meta.permission()) ? "§a" : "§c") + meta.permission();
+						permission = (invoker.hasPermission(meta.getPermissionNode()) ? "§a" : "§c") + meta.getPermission();
 					}
 
 					help.append("\n§9Required Permission: " + permission);
@@ -69,20 +83,20 @@ public class HelpCommandUtil {
 		ArrayList<String> addedCommands = new ArrayList<>();
 
 		cmdManager.getCommandMetas().forEach(subcmdMetas -> {
-			for (CommandProperties meta : subcmdMetas) {
-				if (invoker.hasPermission(meta.permission())) {
+			for (CommandDescriptor meta : subcmdMetas) {
+				if (meta.getPermissionNode() == null || invoker.hasPermission(meta.getPermissionNode())) {
 					// Skip if the command has already been added
-					if (addedCommands.contains(meta.command())) {
+					if (addedCommands.contains(meta.getCommand())) {
 						continue;
 					} else {
-						addedCommands.add(meta.command());
+						addedCommands.add(meta.getCommand());
 					}
 
 					if (help.length() != 0) {
 						help.append('\n');
 					}
 
-					help.append("§9/" + meta.command() + "§f - §e" + meta.description());
+					help.append("§9/" + meta.getCommand() + "§f - §e" + meta.getDescription());
 				}
 			}
 		});
@@ -90,4 +104,55 @@ public class HelpCommandUtil {
 		return help.toString();
 	}
 
+	/**
+	 * Generates a simple help for the commands matching the query that an invoker has access to,
+	 * best match first.
+	 *
+	 * @param cmdManager The CommandManager to search the commands of.
+	 * @param invoker The person invoking the help command.
+	 * @param query The search query.
+	 * @return The generated help page, empty if no commands matched.
+	 */
+	public static String searchHelp(CommandManager cmdManager, CommandInvoker invoker, String query) {
+		return searchHelp(cmdManager, invoker, query, DEFAULT_SEARCH_LIMIT);
+	}
+
+	/**
+	 * Generates a simple help for the commands matching the query that an invoker has access to,
+	 * best match first.
+	 *
+	 * @param cmdManager The CommandManager to search the commands of.
+	 * @param invoker The person invoking the help command.
+	 * @param query The search query.
+	 * @param limit The maximum amount of commands to show.
+	 * @return The generated help page, empty if no commands matched.
+	 */
+	public static String searchHelp(CommandManager cmdManager, CommandInvoker invoker, String query, int limit) {
+		StringBuilder help = new StringBuilder();
+		for (CommandDescriptor meta : getSearchIndex(cmdManager).search(query, invoker, limit)) {
+			if (help.length() != 0) {
+				help.append('\n');
+			}
+
+			help.append("§9/" + meta.getCommand() + "§f - §e" + meta.getDescription());
+		}
+
+		return help.toString();
+	}
+
+	/**
+	 * Gets the search index of the CommandManager, building it if the registry changed since it was last built.
+	 *
+	 * @param cmdManager The CommandManager to get the search index of.
+	 * @return The up to date search index.
+	 */
+	public static CommandSearchIndex getSearchIndex(CommandManager cmdManager) {
+		CommandSearchIndex index = searchIndexes.get(cmdManager);
+		if (index == null || index.getVersion() != cmdManager.getVersion()) {
+			index = new CommandSearchIndex(cmdManager);
+			searchIndexes.put(cmdManager, index);
+		}
+		return index;
+	}
+
 }
@@ -0,0 +1,256 @@
+package com.simplexservers.minecraft.commandutils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Tracks the executing invocations of commands that don't allow duplicates,
+ * so identical invocations can be joined to or dropped against them.
+ * A joined duplicate receives the messages the executing invocation sent once it finishes.
+ * <p>
+ * The amount of tracked invocations is bounded. Once the bound is reached, further
+ * invocations are executed without deduplication rather than growing the map.
+ * </p>
+ *
+ * @author Zach Abney
+ */
+public class InFlightCommands {
+
+	/**
+	 * The token returned for invocations that aren't tracked.
+	 */
+	private static final InFlightCommand UNTRACKED = new InFlightCommand(null);
+
+	/**
+	 * The executing invocations.
+	 */
+	private final ConcurrentMap<InvocationKey, InFlightCommand> inFlight = new ConcurrentHashMap<>();
+	/**
+	 * The amount of executing invocations being tracked.
+	 */
+	private final AtomicInteger size = new AtomicInteger();
+	/**
+	 * The maximum amount of executing invocations to track.
+	 */
+	private final int maxSize;
+
+	/**
+	 * Constructs a new InFlightCommands.
+	 *
+	 * @param maxSize The maximum amount of executing invocations to track.
+	 */
+	public InFlightCommands(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Gets the amount of executing invocations being tracked.
+	 *
+	 * @return The amount of tracked invocations.
+	 */
+	public int size() {
+		return size.get();
+	}
+
+	/**
+	 * Begins an invocation of a command that doesn't allow duplicates.
+	 * <p>
+	 * If an identical invocation is executing, null is returned straight away. A duplicate with the
+	 * {@link DuplicatePolicy#JOIN} policy is attached to the executing invocation, and its callback is passed
+	 * the messages that invocation sent on the executing thread once it finishes, so the dispatching thread
+	 * never waits. Otherwise the invocation is tracked and its token is returned, which must be passed to
+	 * {@link #end(InFlightCommand)} once it finishes executing. The messages of a {@link DuplicatePolicy#JOIN}
+	 * invocation are only captured if it's executed with the invoker returned by {@link InFlightCommand#capture(CommandInvoker)}.
+	 * </p>
+	 *
+	 * @param sender The sender of the command.
+	 * @param matchedMethod The matched CommandMethod and its parsed arguments.
+	 * @param policy How to handle a duplicate invocation.
+	 * @param joined The callback passed the messages of the executing invocation once it finishes if this one joins it, may be null.
+	 * @return The token of the invocation, or null if it was a duplicate and shouldn't be executed.
+	 */
+	public InFlightCommand begin(CommandInvoker sender, MatchedCommandMethod matchedMethod, DuplicatePolicy policy, Consumer<String[]> joined) {
+		if (size.incrementAndGet() > maxSize) {
+			size.decrementAndGet();
+			return UNTRACKED;
+		}
+
+		InvocationKey key = new InvocationKey(sender.getNativeInvoker(), matchedMethod.getMethod(), matchedMethod.getArguments());
+		InFlightCommand command = new InFlightCommand(key);
+		InFlightCommand executing = inFlight.putIfAbsent(key, command);
+		if (executing == null) return command;
+
+		size.decrementAndGet();
+		// A command that re-invokes itself on the same thread must not join itself.
+		if (executing.thread == Thread.currentThread()) return UNTRACKED;
+
+		if (policy == DuplicatePolicy.JOIN && joined != null) {
+			executing.join(joined);
+		}
+		return null;
+	}
+
+	/**
+	 * Ends a tracked invocation, completing any duplicates that joined it.
+	 *
+	 * @param command The token returned when the invocation began.
+	 */
+	public void end(InFlightCommand command) {
+		if (command == UNTRACKED) return;
+
+		inFlight.remove(command.key, command);
+		size.decrementAndGet();
+		command.finish();
+	}
+
+	/**
+	 * An executing invocation being tracked.
+	 */
+	public static class InFlightCommand {
+
+		/**
+		 * The key identifying the invocation.
+		 */
+		private final InvocationKey key;
+		/**
+		 * The thread executing the invocation.
+		 */
+		private final Thread thread = Thread.currentThread();
+		/**
+		 * The callbacks of the duplicates that joined the invocation, or null if there are none.
+		 */
+		private List<Consumer<String[]>> joiners;
+		/**
+		 * The invoker capturing the messages sent by the invocation, or null if they aren't captured.
+		 */
+		private CapturingInvoker capturer;
+		/**
+		 * The messages sent by the invocation, set once it has finished.
+		 */
+		private String[] messages;
+		/**
+		 * Whether the invocation has finished executing.
+		 */
+		private boolean finished = false;
+
+		/**
+		 * Constructs a new InFlightCommand.
+		 *
+		 * @param key The key identifying the invocation.
+		 */
+		private InFlightCommand(InvocationKey key) {
+			this.key = key;
+		}
+
+		/**
+		 * Wraps the sender of the invocation so the messages it sends are passed on to the duplicates that join it.
+		 * Must be called on the executing thread before the invocation executes.
+		 *
+		 * @param sender The sender of the invocation.
+		 * @return The invoker to execute the invocation with.
+		 */
+		public CommandInvoker capture(CommandInvoker sender) {
+			if (key == null) return sender; // Untracked, nothing can join it.
+			return capturer = new CapturingInvoker(sender);
+		}
+
+		/**
+		 * Attaches the callback of a duplicate to the invocation, running it right away if the invocation has already finished.
+		 *
+		 * @param joiner The callback passed the messages of the invocation once it finishes.
+		 */
+		private void join(Consumer<String[]> joiner) {
+			String[] messages;
+			synchronized (this) {
+				if (!finished) {
+					if (joiners == null) joiners = new ArrayList<>(2);
+					joiners.add(joiner);
+					return;
+				}
+				messages = this.messages;
+			}
+			complete(joiner, messages);
+		}
+
+		/**
+		 * Marks the invocation as finished and passes the messages it sent to the callbacks of the duplicates that joined it.
+		 */
+		private void finish() {
+			String[] messages = capturer != null ? capturer.getMessages() : new String[0];
+			List<Consumer<String[]>> joiners;
+			synchronized (this) {
+				finished = true;
+				this.messages = messages;
+				joiners = this.joiners;
+				this.joiners = null;
+			}
+			if (joiners == null) return;
+
+			for (Consumer<String[]> joiner : joiners) {
+				complete(joiner, messages);
+			}
+		}
+
+		/**
+		 * Runs the callback of a duplicate, logging it if it fails so the other duplicates still complete.
+		 *
+		 * @param joiner The callback of the duplicate.
+		 * @param messages The messages sent by the invocation.
+		 */
+		private static void complete(Consumer<String[]> joiner, String[] messages) {
+			try {
+				joiner.accept(messages);
+			} catch (RuntimeException e) {
+				Logger.getGlobal().log(Level.SEVERE, "An error occurred while completing a joined command", e);
+			}
+		}
+
+	}
+
+	/**
+	 * Identifies an invocation by its invoker, CommandMethod and parsed arguments.
+	 */
+	private static class InvocationKey {
+
+		private final Object invoker;
+		private final CommandMethod method;
+		private final Object[] arguments;
+		private final int hash;
+
+		/**
+		 * Constructs a new InvocationKey.
+		 *
+		 * @param invoker The native invoker.
+		 * @param method The matched CommandMethod.
+		 * @param arguments The parsed arguments.
+		 */
+		private InvocationKey(Object invoker, CommandMethod method, Object[] arguments) {
+			this.invoker = invoker;
+			this.method = method;
+			this.arguments = arguments;
+			this.hash = 31 * (31 * invoker.hashCode() + System.identityHashCode(method)) + Arrays.deepHashCode(arguments);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof InvocationKey)) return false;
+			InvocationKey other = (InvocationKey) o;
+			return hash == other.hash && method == other.method && invoker.equals(other.invoker) && Arrays.deepEquals(arguments, other.arguments);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+	}
+
+}
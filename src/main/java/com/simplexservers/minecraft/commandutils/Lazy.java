@@ -0,0 +1,100 @@
+package com.simplexservers.minecraft.commandutils;
+
+import java.util.function.Supplier;
+
+/**
+ * An argument that is only parsed when the command asks for it.
+ * <p>
+ * Command methods take a {@code Lazy<T>} or {@code Supplier<T>} parameter instead of {@code T}
+ * to defer an expensive parser, such as a database backed lookup, to the branches that use it.
+ * The argument is parsed on the first call to {@link #get()} and the result is reused for the
+ * rest of the invocation. A parse error is thrown from {@link #get()} as a LazyArgumentException.
+ * </p>
+ *
+ * @param <T> The type the argument is parsed to.
+ * @author Zach Abney
+ */
+public final class Lazy<T> implements Supplier<T> {
+
+	/**
+	 * The argument entered by the CommandSender.
+	 */
+	private final String raw;
+	/**
+	 * The parser of the argument, released once the argument is parsed.
+	 */
+	private ParameterTypeParser<? extends T> parser;
+	/**
+	 * The parsed argument.
+	 */
+	private T value;
+
+	/**
+	 * Constructs a new Lazy argument.
+	 *
+	 * @param raw The argument entered by the CommandSender.
+	 * @param parser The parser of the argument.
+	 */
+	public Lazy(String raw, ParameterTypeParser<? extends T> parser) {
+		this.raw = raw;
+		this.parser = parser;
+	}
+
+	/**
+	 * Gets the argument as entered by the CommandSender, without parsing it.
+	 *
+	 * @return The raw argument.
+	 */
+	public String getRaw() {
+		return raw;
+	}
+
+	/**
+	 * Checks if the argument has been parsed.
+	 *
+	 * @return true if the argument has been parsed, false otherwise.
+	 */
+	public synchronized boolean isParsed() {
+		return parser == null;
+	}
+
+	/**
+	 * Parses the argument the first time it's called, then returns the same result.
+	 *
+	 * @return The parsed argument.
+	 * @throws LazyArgumentException If the argument can't be parsed.
+	 */
+	@Override
+	public synchronized T get() {
+		if (parser != null) {
+			try {
+				value = parser.parse(raw);
+			} catch (ArgumentParseException e) {
+				throw new LazyArgumentException(e);
+			}
+			parser = null;
+		}
+		return value;
+	}
+
+	/**
+	 * Lazy arguments are equal when they were entered the same, so invocations can be compared without parsing them.
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object o) {
+		return this == o || o instanceof Lazy && raw.equals(((Lazy<?>) o).raw);
+	}
+
+	@Override
+	public int hashCode() {
+		return raw.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return raw;
+	}
+
+}
@@ -0,0 +1,32 @@
+package com.simplexservers.minecraft.commandutils;
+
+/**
+ * Exception thrown by {@link Lazy#get()} when the deferred argument can't be parsed.
+ * It's unchecked so command bodies don't have to handle it, the dispatching
+ * CommandManager reports it to the invoker like any other argument error.
+ *
+ * @author Zach Abney
+ */
+public class LazyArgumentException extends RuntimeException {
+
+	private static final long serialVersionUID = 4417310259868345101L;
+
+	/**
+	 * Constructs a new LazyArgumentException wrapping the parse error of the deferred argument.
+	 *
+	 * @param cause The parse error of the deferred argument.
+	 */
+	public LazyArgumentException(ArgumentParseException cause) {
+		super(cause.getMessage(), cause);
+	}
+
+	/**
+	 * Gets the display message to show to the player.
+	 *
+	 * @return The display message.
+	 */
+	public String getDisplayMessage() {
+		return ((ArgumentParseException) getCause()).getDisplayMessage();
+	}
+
+}
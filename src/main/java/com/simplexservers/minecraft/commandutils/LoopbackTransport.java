@@ -0,0 +1,36 @@
+package com.simplexservers.minecraft.commandutils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A CommandTransport that delivers batches to routers in the same JVM,
+ * used to run several nodes in one process and for testing.
+ *
+ * @author Zach Abney
+ */
+public class LoopbackTransport implements CommandTransport {
+
+	/**
+	 * The routers bound to each node.
+	 */
+	private final Map<String, CommandRouter> routers = new ConcurrentHashMap<>();
+
+	@Override
+	public void bind(String node, CommandRouter router) {
+		routers.put(node, router);
+	}
+
+	@Override
+	public void send(String node, byte[] batch) {
+		CommandRouter router = routers.get(node);
+		if (router == null) {
+			Logger.getGlobal().log(Level.WARNING, "Dropped a batch of routed commands for unknown node " + node + ".");
+			return;
+		}
+		router.receive(batch);
+	}
+
+}
@@ -11,6 +11,14 @@ public class MatchedCommandMethod {
 	 * The CommandMethod that was matched.
 	 */
 	private CommandMethod method;
+	/**
+	 * The subcommand the CommandMethod was matched by.
+	 */
+	private String subcommand;
+	/**
+	 * The raw arguments entered after the subcommand.
+	 */
+	private String[] rawArguments;
 	/**
 	 * The arguments, parsed from the user command, to be passed to the CommandMethod.
 	 */
@@ -21,10 +29,14 @@ public class MatchedCommandMethod {
 	 * found and the arguments to be passed to it from the command entered by the CommandSender.
 	 *
 	 * @param method The CommandMethod matched from the user command.
+	 * @param subcommand The subcommand the CommandMethod was matched by.
+	 * @param rawArguments The raw arguments entered after the subcommand.
 	 * @param arguments The arguments to be passed to the matched CommandMethod.
 	 */
-	protected MatchedCommandMethod(CommandMethod method, Object[] arguments) {
+	protected MatchedCommandMethod(CommandMethod method, String subcommand, String[] rawArguments, Object[] arguments) {
 		this.method = method;
+		this.subcommand = subcommand;
+		this.rawArguments = rawArguments;
 		this.arguments = arguments;
 	}
 
@@ -37,6 +49,24 @@ public class MatchedCommandMethod {
 		return method;
 	}
 
+	/**
+	 * Gets the subcommand the CommandMethod was matched by.
+	 *
+	 * @return The matched subcommand, empty if the method serves the base command.
+	 */
+	public String getSubcommand() {
+		return subcommand;
+	}
+
+	/**
+	 * Gets the raw arguments entered by the CommandSender after the subcommand.
+	 *
+	 * @return The raw arguments.
+	 */
+	public String[] getRawArguments() {
+		return rawArguments;
+	}
+
 	/**
 	 * Gets the arguments that should be passed to the matched CommandMethod
 	 * to represent the arguments entered by the CommandSender.
@@ -0,0 +1,20 @@
+package com.simplexservers.minecraft.commandutils;
+
+/**
+ * Resolves the node that owns a routing key, such as the node a player is connected to
+ * or the node hosting a region.
+ *
+ * @author Zach Abney
+ */
+@FunctionalInterface
+public interface NodeResolver {
+
+	/**
+	 * Resolves the node that owns the routing key.
+	 *
+	 * @param routingKey The parsed routing argument of the command.
+	 * @return The id of the owning node, or null if the command should run locally.
+	 */
+	String resolveNode(Object routingKey);
+
+}
@@ -1,6 +1,10 @@
 package com.simplexservers.minecraft.commandutils;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 
 /**
  * The support parameter types and their class types.
@@ -19,6 +23,10 @@ public enum ParameterType {
 	 * The map of user defined parameter types and their corresponding ParameterTypeParser.
 	 */
 	private static final HashMap<Class<?>, ParameterTypeParser<?>> userDefinedParameterTypes = new HashMap<>();
+	/**
+	 * The map of parameter types and the parsers that expand user input to many targets of the type.
+	 */
+	private static final HashMap<Class<?>, ParameterTypeParser<?>> targetParsers = new HashMap<>();
 
 	/**
 	 * The class the ParameterType represents.
@@ -55,6 +63,21 @@ public enum ParameterType {
 		return null;
 	}
 
+	/**
+	 * Gets the primitive class parsed for a boxed class, used for type arguments such as {@code Lazy<Integer>}
+	 * that can't be primitive.
+	 *
+	 * @param clazz The class to unbox.
+	 * @return The primitive class of a supported boxed class, otherwise the given class.
+	 */
+	public static Class<?> unbox(Class<?> clazz) {
+		if (clazz == Integer.class) return int.class;
+		if (clazz == Float.class) return float.class;
+		if (clazz == Double.class) return double.class;
+		if (clazz == Boolean.class) return boolean.class;
+		return clazz;
+	}
+
 	/**
 	 * Registers a custom user defined parameter type and it's corresponding parser.
 	 *
@@ -78,6 +101,92 @@ public enum ParameterType {
 		return (ParameterTypeParser<T>) userDefinedParameterTypes.get(type);
 	}
 
+	/**
+	 * Registers a parser that expands user input, such as a selector or group, to many targets of a parameter type.
+	 * It's used to parse the targets argument of commands that fan out.
+	 *
+	 * @param type The parameter type of each target.
+	 * @param parser The ParameterTypeParser used to convert from user input to the targets.
+	 * @param <T> The parameter type.
+	 */
+	public static <T> void registerTargetParser(Class<T> type, ParameterTypeParser<? extends Collection<? extends T>> parser) {
+		targetParsers.put(type, parser);
+	}
+
+	/**
+	 * Parses the targets argument of a command that fans out into its targets.
+	 * Types without a registered target parser expand to the single parsed argument.
+	 *
+	 * @param arg The argument entered by the CommandSender.
+	 * @param clazz The parameter type of each target.
+	 * @param <T> The parameter type.
+	 * @return The targets, never empty.
+	 * @throws ArgumentParseException If there is a format issue parsing the argument or it matched no targets.
+	 * @throws IllegalArgumentException If the parameter type is not supported.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> List<T> parseTargets(String arg, Class<T> clazz) throws ArgumentParseException, IllegalArgumentException {
+		ParameterTypeParser<? extends Collection<? extends T>> parser = (ParameterTypeParser<? extends Collection<? extends T>>) targetParsers.get(clazz);
+		if (parser == null) return Collections.singletonList(parseArgument(arg, clazz));
+		return toTargets(arg, parser.parse(arg));
+	}
+
+	/**
+	 * Copies the parsed targets of an argument into a list.
+	 *
+	 * @param arg The argument the targets were parsed from.
+	 * @param targets The parsed targets.
+	 * @param <T> The parameter type.
+	 * @return The list of targets.
+	 * @throws ArgumentParseException If the argument matched no targets.
+	 */
+	static <T> List<T> toTargets(String arg, Collection<? extends T> targets) throws ArgumentParseException {
+		if (targets == null || targets.isEmpty()) {
+			throw new ArgumentParseException("No targets matched '" + arg + "'", "'" + arg + "' didn't match anything.");
+		}
+		return Collections.unmodifiableList(new ArrayList<>(targets));
+	}
+
+	/**
+	 * Gets a parser that converts user input to the given class type, used to bind parsers up front.
+	 *
+	 * @param clazz The class the parser should parse to.
+	 * @param <T> The parameter type.
+	 * @return The ParameterTypeParser for the class type.
+	 * @throws IllegalArgumentException If the class type is not supported.
+	 */
+	public static <T> ParameterTypeParser<T> getParser(Class<T> clazz) throws IllegalArgumentException {
+		ParameterType parameterType = ParameterType.getParameterType(clazz);
+		if (parameterType == null) throw new IllegalArgumentException("Unsupported argument parameterType " + clazz.getName() + ".");
+		if (parameterType == USER_DEFINED) return getUserDefinedParameterParser(clazz);
+		return input -> parseArgument(input, clazz);
+	}
+
+	/**
+	 * Generates a sample argument that parses to the given class type, used to warm up commands.
+	 *
+	 * @param clazz The class the argument should parse to.
+	 * @return The sample argument, or null if one can't be generated for the class type.
+	 */
+	public static String sampleArgument(Class<?> clazz) {
+		ParameterType parameterType = ParameterType.getParameterType(clazz);
+		if (parameterType == null) return null;
+
+		switch (parameterType) {
+			case STRING:
+				return "sample";
+			case INTEGER:
+				return "1";
+			case FLOAT:
+			case DOUBLE:
+				return "1.5";
+			case BOOLEAN:
+				return "true";
+			default:
+				return null; // User defined parsers can't be given an arbitrary input.
+		}
+	}
+
 	/**
 	 * Attempts to parse the given argument entered by the CommandSender into the
 	 * given class type.
@@ -0,0 +1,24 @@
+package com.simplexservers.minecraft.commandutils;
+
+/**
+ * An optional capability of a CommandInvoker that provides its permissions compiled into a bit set,
+ * turning each permission check into a bit test.
+ * <p>
+ * Implementations should keep the compiled permissions somewhere that outlives the invoker,
+ * such as the player's session, and refresh them with
+ * {@link CompiledPermissions#update(CompiledPermissions, CommandInvoker, long)} using a version
+ * that changes whenever the invoker's permissions change.
+ * </p>
+ *
+ * @author Zach Abney
+ */
+public interface PermissionCompilingInvoker {
+
+	/**
+	 * Gets the invoker's up to date compiled permissions.
+	 *
+	 * @return The compiled permissions.
+	 */
+	CompiledPermissions getCompiledPermissions();
+
+}
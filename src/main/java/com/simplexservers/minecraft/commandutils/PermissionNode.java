@@ -0,0 +1,102 @@
+package com.simplexservers.minecraft.commandutils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A permission node interned to an integer id, so compiled permissions can check it with a bit test.
+ *
+ * @author Zach Abney
+ */
+public final class PermissionNode {
+
+	/**
+	 * The interned permission nodes.
+	 */
+	private static final ConcurrentMap<String, PermissionNode> nodes = new ConcurrentHashMap<>();
+
+	/**
+	 * The id of the permission node.
+	 */
+	private final int id;
+	/**
+	 * The permission node.
+	 */
+	private final String node;
+
+	/**
+	 * Constructs a new PermissionNode.
+	 *
+	 * @param id The id of the permission node.
+	 * @param node The permission node.
+	 */
+	private PermissionNode(int id, String node) {
+		this.id = id;
+		this.node = node;
+	}
+
+	/**
+	 * Gets the interned PermissionNode for the permission, interning it if it hasn't been already.
+	 *
+	 * @param node The permission node.
+	 * @return The interned PermissionNode.
+	 */
+	public static PermissionNode of(String node) {
+		PermissionNode permissionNode = nodes.get(node);
+		if (permissionNode != null) return permissionNode;
+
+		synchronized (nodes) {
+			// Ids are handed out under the lock so they stay dense.
+			return nodes.computeIfAbsent(node, key -> new PermissionNode(nodes.size(), key));
+		}
+	}
+
+	/**
+	 * Gets the amount of permission nodes that have been interned.
+	 * Every interned node has an id below this amount.
+	 *
+	 * @return The amount of interned permission nodes.
+	 */
+	public static int count() {
+		return nodes.size();
+	}
+
+	/**
+	 * Gets every interned permission node indexed by id.
+	 *
+	 * @return The interned permission nodes.
+	 */
+	static PermissionNode[] all() {
+		synchronized (nodes) {
+			PermissionNode[] all = new PermissionNode[nodes.size()];
+			for (PermissionNode permissionNode : nodes.values()) {
+				all[permissionNode.id] = permissionNode;
+			}
+			return all;
+		}
+	}
+
+	/**
+	 * Gets the id of the permission node.
+	 *
+	 * @return The permission node id.
+	 */
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * Gets the permission node.
+	 *
+	 * @return The permission node.
+	 */
+	public String getNode() {
+		return node;
+	}
+
+	@Override
+	public String toString() {
+		return node;
+	}
+
+}
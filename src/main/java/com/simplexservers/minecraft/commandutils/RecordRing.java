@@ -0,0 +1,241 @@
+package com.simplexservers.minecraft.commandutils;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A preallocated lock-free ring buffer of records, drained by a background writer thread.
+ * <p>
+ * Any amount of threads claim a slot, fill it in and publish it, without ever taking a lock.
+ * The single writer thread hands each published record to the drain in order, frees its slot, and
+ * flushes the drain whenever it runs out of records. Used by the CommandAuditLog and the
+ * CommandTrafficRecorder so dispatching threads never wait on the disk.
+ * </p>
+ *
+ * @param <R> The type of the records.
+ * @author Zach Abney
+ */
+class RecordRing<R extends RecordRing.Slot> {
+
+	/**
+	 * The time the writer parks for when there are no records to write.
+	 */
+	private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+	/**
+	 * The preallocated slots of the ring buffer.
+	 */
+	private final Slot[] ring;
+	/**
+	 * The mask to convert a sequence to its slot in the ring buffer.
+	 */
+	private final int mask;
+	/**
+	 * Whether a full ring buffer makes the claiming thread wait for the writer instead of dropping the record.
+	 */
+	private final boolean blockWhenFull;
+	/**
+	 * The next sequence to be claimed by a producing thread.
+	 */
+	private final AtomicLong claimed = new AtomicLong();
+	/**
+	 * The next sequence to be read by the writer.
+	 */
+	private final AtomicLong consumed = new AtomicLong();
+	/**
+	 * The amount of records dropped because the ring buffer was full.
+	 */
+	private final AtomicLong dropped = new AtomicLong();
+
+	/**
+	 * Where the writer hands the records.
+	 */
+	private final Drain<R> drain;
+	/**
+	 * The background writer thread.
+	 */
+	private final Thread writer;
+	/**
+	 * Whether the ring has been closed or has stopped because the drain failed.
+	 */
+	private volatile boolean closed = false;
+
+	/**
+	 * Constructs a new RecordRing, its writer is started by {@link #start()}.
+	 *
+	 * @param name The name of the writer thread, also used when logging a failed drain.
+	 * @param capacity The amount of records the ring buffer holds, rounded up to a power of two.
+	 * @param blockWhenFull Whether a full ring buffer makes the claiming thread wait instead of dropping the record.
+	 * @param slots Creates the preallocated slots.
+	 * @param drain Where the writer hands the records.
+	 */
+	RecordRing(String name, int capacity, boolean blockWhenFull, Supplier<R> slots, Drain<R> drain) {
+		if (capacity <= 0 || capacity > 1 << 30) throw new IllegalArgumentException("The capacity must be between 1 and 2^30.");
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) size <<= 1;
+
+		this.ring = new Slot[size];
+		for (int i = 0; i < size; i++) {
+			ring[i] = slots.get();
+		}
+		this.mask = size - 1;
+		this.blockWhenFull = blockWhenFull;
+		this.drain = drain;
+
+		this.writer = new Thread(() -> runWriter(name), name);
+		writer.setDaemon(true);
+	}
+
+	/**
+	 * Starts the writer, once whatever the drain writes to is ready.
+	 */
+	void start() {
+		writer.start();
+	}
+
+	/**
+	 * Gets the amount of records dropped because the ring buffer was full.
+	 *
+	 * @return The amount of dropped records.
+	 */
+	long getDroppedCount() {
+		return dropped.get();
+	}
+
+	/**
+	 * Claims the next slot, which must be filled in and passed to {@link #publish(Slot)}.
+	 * <p>
+	 * When the ring buffer is full the record is dropped, unless the ring blocks when full,
+	 * in which case the thread waits for the writer to make room. A record is dropped anyway
+	 * if the writer has stopped, so a producer never waits on a dead writer.
+	 * </p>
+	 *
+	 * @return The claimed slot, or null if the record was dropped or the ring is closed.
+	 */
+	@SuppressWarnings("unchecked")
+	R claim() {
+		if (closed) return null;
+
+		long sequence;
+		while (true) {
+			sequence = claimed.get();
+			if (sequence - consumed.get() >= ring.length) {
+				// The ring buffer is full, only wait for a writer that is still running.
+				if (!blockWhenFull || closed || !writer.isAlive()) {
+					dropped.incrementAndGet();
+					return null;
+				}
+				LockSupport.unpark(writer);
+				Thread.yield();
+				continue;
+			}
+			if (claimed.compareAndSet(sequence, sequence + 1)) break;
+		}
+
+		R slot = (R) ring[(int) sequence & mask];
+		slot.sequence = sequence;
+		return slot;
+	}
+
+	/**
+	 * Publishes a filled in slot to the writer.
+	 *
+	 * @param slot The slot returned by {@link #claim()}.
+	 */
+	void publish(R slot) {
+		slot.published = slot.sequence + 1;
+	}
+
+	/**
+	 * Stops the writer after it has drained every published record.
+	 */
+	void close() {
+		closed = true;
+		LockSupport.unpark(writer);
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Drains the ring buffer until it is closed, or until the drain fails.
+	 *
+	 * @param name The name of the ring, used when logging a failed drain.
+	 */
+	@SuppressWarnings("unchecked")
+	private void runWriter(String name) {
+		long sequence = consumed.get();
+		try {
+			while (true) {
+				R slot = (R) ring[(int) sequence & mask];
+				if (slot.published != sequence + 1) {
+					// Nothing left to read, flush what has been written.
+					drain.flush();
+					if (closed && claimed.get() == sequence) break;
+					LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+					continue;
+				}
+
+				drain.write(slot);
+				slot.clear();
+				consumed.lazySet(++sequence); // Frees the slot for the producing threads
+			}
+		} catch (IOException e) {
+			Logger.getGlobal().log(Level.SEVERE, name + " was unable to write, stopping.", e);
+			closed = true;
+		}
+	}
+
+	/**
+	 * Where the writer hands the records of a RecordRing.
+	 *
+	 * @param <R> The type of the records.
+	 */
+	interface Drain<R> {
+
+		/**
+		 * Writes a record, called on the writer thread in the order the records were claimed.
+		 *
+		 * @param record The record to write.
+		 * @throws IOException If the record can't be written, which stops the ring.
+		 */
+		void write(R record) throws IOException;
+
+		/**
+		 * Flushes the written records, called on the writer thread whenever there are no records left to write.
+		 *
+		 * @throws IOException If the records can't be flushed, which stops the ring.
+		 */
+		void flush() throws IOException;
+
+	}
+
+	/**
+	 * A preallocated slot in the ring buffer.
+	 */
+	abstract static class Slot {
+
+		/**
+		 * The sequence + 1 of the record in the slot, written last to publish it to the writer.
+		 */
+		volatile long published;
+		/**
+		 * The sequence the slot was claimed for.
+		 */
+		long sequence;
+
+		/**
+		 * Clears the references held by the record once it has been written, so they can be collected.
+		 */
+		abstract void clear();
+
+	}
+
+}
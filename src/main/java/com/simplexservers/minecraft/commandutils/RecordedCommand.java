@@ -0,0 +1,108 @@
+package com.simplexservers.minecraft.commandutils;
+
+/**
+ * A command captured by a CommandTrafficRecorder.
+ *
+ * @author Zach Abney
+ */
+public class RecordedCommand {
+
+	/**
+	 * The time the command was invoked, in nanoseconds since the recording started.
+	 */
+	private final long offsetNanos;
+	/**
+	 * The class name of the invoker.
+	 */
+	private final String invokerClass;
+	/**
+	 * The name identifying the invoker.
+	 */
+	private final String invokerName;
+	/**
+	 * Whether the invoker was a player.
+	 */
+	private final boolean player;
+	/**
+	 * The base of the command.
+	 */
+	private final String baseCommand;
+	/**
+	 * The arguments provided with the base command.
+	 */
+	private final String[] args;
+
+	/**
+	 * Constructs a new RecordedCommand.
+	 *
+	 * @param offsetNanos The time the command was invoked, in nanoseconds since the recording started.
+	 * @param invokerClass The class name of the invoker.
+	 * @param invokerName The name identifying the invoker.
+	 * @param player Whether the invoker was a player.
+	 * @param baseCommand The base of the command.
+	 * @param args The arguments provided with the base command.
+	 */
+	public RecordedCommand(long offsetNanos, String invokerClass, String invokerName, boolean player, String baseCommand, String[] args) {
+		this.offsetNanos = offsetNanos;
+		this.invokerClass = invokerClass;
+		this.invokerName = invokerName;
+		this.player = player;
+		this.baseCommand = baseCommand;
+		this.args = args;
+	}
+
+	/**
+	 * Gets the time the command was invoked.
+	 *
+	 * @return The time in nanoseconds since the recording started.
+	 */
+	public long getOffsetNanos() {
+		return offsetNanos;
+	}
+
+	/**
+	 * Gets the class name of the invoker.
+	 *
+	 * @return The invoker's class name.
+	 */
+	public String getInvokerClass() {
+		return invokerClass;
+	}
+
+	/**
+	 * Gets the name identifying the invoker.
+	 *
+	 * @return The invoker's name.
+	 */
+	public String getInvokerName() {
+		return invokerName;
+	}
+
+	/**
+	 * Checks if the invoker was a player.
+	 *
+	 * @return true if the invoker was a player, false otherwise.
+	 */
+	public boolean isPlayer() {
+		return player;
+	}
+
+	/**
+	 * Gets the base of the command.
+	 *
+	 * @return The base command.
+	 */
+	public String getBaseCommand() {
+		return baseCommand;
+	}
+
+	/**
+	 * Gets the arguments provided with the base command.
+	 *
+	 * @return The command arguments.
+	 */
+	public String[] getArgs() {
+		return args;
+	}
+
+}
@@ -0,0 +1,81 @@
+package com.simplexservers.minecraft.commandutils;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The throughput and latency measured while replaying recorded command traffic.
+ *
+ * @author Zach Abney
+ */
+public class ReplayReport {
+
+	/**
+	 * The latency of each replayed command in nanoseconds, sorted ascending.
+	 */
+	private final long[] latencies;
+	/**
+	 * The wall clock time the replay took, in nanoseconds.
+	 */
+	private final long elapsedNanos;
+
+	/**
+	 * Constructs a new ReplayReport.
+	 *
+	 * @param latencies The latency of each replayed command in nanoseconds.
+	 * @param elapsedNanos The wall clock time the replay took, in nanoseconds.
+	 */
+	protected ReplayReport(long[] latencies, long elapsedNanos) {
+		this.latencies = latencies;
+		this.elapsedNanos = elapsedNanos;
+		Arrays.sort(latencies);
+	}
+
+	/**
+	 * Gets the amount of commands replayed.
+	 *
+	 * @return The amount of commands replayed.
+	 */
+	public int getCommandCount() {
+		return latencies.length;
+	}
+
+	/**
+	 * Gets the wall clock time the replay took.
+	 *
+	 * @return The elapsed time in nanoseconds.
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * Gets the amount of commands dispatched per second.
+	 *
+	 * @return The throughput in commands per second.
+	 */
+	public double getThroughput() {
+		return elapsedNanos == 0 ? 0 : latencies.length * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+	}
+
+	/**
+	 * Gets the dispatch latency at the given percentile.
+	 *
+	 * @param percentile The percentile, between 0 and 100.
+	 * @return The latency in nanoseconds, or 0 if no commands were replayed.
+	 */
+	public long getLatencyPercentile(double percentile) {
+		if (latencies.length == 0) return 0;
+		int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+		return latencies[Math.max(0, Math.min(index, latencies.length - 1))];
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ReplayReport{commands=%d,elapsed=%.1fms,throughput=%.1f/s,p50=%.1fus,p90=%.1fus,p99=%.1fus,max=%.1fus}",
+				getCommandCount(), elapsedNanos / 1e6, getThroughput(),
+				getLatencyPercentile(50) / 1e3, getLatencyPercentile(90) / 1e3,
+				getLatencyPercentile(99) / 1e3, getLatencyPercentile(100) / 1e3);
+	}
+
+}
@@ -0,0 +1,104 @@
+package com.simplexservers.minecraft.commandutils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A report of what was primed by warming up a CommandManager.
+ *
+ * @author Zach Abney
+ */
+public class WarmUpReport {
+
+	/**
+	 * The commands and sample arguments that were primed.
+	 */
+	private final List<String> primed;
+	/**
+	 * The commands that were skipped because no sample arguments were available.
+	 */
+	private final List<String> skipped;
+	/**
+	 * The samples that failed to match or parse.
+	 */
+	private final List<String> failed;
+	/**
+	 * The amount of times each sample was run.
+	 */
+	private final int iterations;
+	/**
+	 * The time the warm up took, in nanoseconds.
+	 */
+	private final long elapsedNanos;
+
+	/**
+	 * Constructs a new WarmUpReport.
+	 *
+	 * @param primed The commands and sample arguments that were primed.
+	 * @param skipped The commands that were skipped because no sample arguments were available.
+	 * @param failed The samples that failed to match or parse.
+	 * @param iterations The amount of times each sample was run.
+	 * @param elapsedNanos The time the warm up took, in nanoseconds.
+	 */
+	protected WarmUpReport(List<String> primed, List<String> skipped, List<String> failed, int iterations, long elapsedNanos) {
+		this.primed = Collections.unmodifiableList(primed);
+		this.skipped = Collections.unmodifiableList(skipped);
+		this.failed = Collections.unmodifiableList(failed);
+		this.iterations = iterations;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * Gets the commands and sample arguments that were primed.
+	 *
+	 * @return The primed commands, each with its sample arguments.
+	 */
+	public List<String> getPrimed() {
+		return primed;
+	}
+
+	/**
+	 * Gets the commands that were skipped because no sample arguments were available,
+	 * usually because they take a user defined parameter type and declare no samples.
+	 *
+	 * @return The skipped commands.
+	 */
+	public List<String> getSkipped() {
+		return skipped;
+	}
+
+	/**
+	 * Gets the samples that failed to match or parse.
+	 *
+	 * @return The failed commands, each with its sample arguments.
+	 */
+	public List<String> getFailed() {
+		return failed;
+	}
+
+	/**
+	 * Gets the amount of times each sample was run.
+	 *
+	 * @return The amount of iterations.
+	 */
+	public int getIterations() {
+		return iterations;
+	}
+
+	/**
+	 * Gets the time the warm up took.
+	 *
+	 * @return The elapsed time in nanoseconds.
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	@Override
+	public String toString() {
+		return "Primed " + primed.size() + " command samples x" + iterations + " in " + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + "ms"
+				+ " (" + skipped.size() + " skipped, " + failed.size() + " failed)";
+	}
+
+}
@@ -0,0 +1,86 @@
+package com.simplexservers.minecraft.commandutils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests writing dispatched commands to the audit log.
+ *
+ * @author Zach Abney
+ */
+public class CommandAuditLogTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void recordsEveryOutcome() throws Exception {
+		Path file = folder.getRoot().toPath().resolve("audit.log");
+		CommandManager manager = new CommandManager();
+		manager.registerHandler(new TestCommandHandler());
+		StubInvoker invoker = new StubInvoker();
+
+		try (CommandAuditLog auditLog = new CommandAuditLog(file, 16, CommandAuditLog.OverflowPolicy.BLOCK, 1 << 20, 1)) {
+			manager.setAuditSink(auditLog);
+			manager.invokeCommand(invoker, "math", new String[] {"add", "1", "2"});
+			manager.invokeCommand(invoker, "math", new String[] {"add", "x", "2"});
+			manager.invokeCommand(invoker, "unknown", new String[] {"a"});
+		}
+
+		List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+		assertEquals(3, lines.size());
+		assertTrue(lines.get(0).contains("\tmath\tadd\t1 2\tSUCCESS\t"));
+		assertTrue(lines.get(1).contains("\tmath\t\tadd x 2\tINVALID_ARGUMENTS\t"));
+		assertTrue(lines.get(2).contains("\tunknown\t\ta\tUNKNOWN_COMMAND\t"));
+	}
+
+	@Test
+	public void rollsOverWhenFull() throws Exception {
+		Path file = folder.getRoot().toPath().resolve("audit.log");
+		CommandManager manager = new CommandManager();
+		manager.registerHandler(new TestCommandHandler());
+		StubInvoker invoker = new StubInvoker();
+
+		try (CommandAuditLog auditLog = new CommandAuditLog(file, 4, CommandAuditLog.OverflowPolicy.BLOCK, 200, 2)) {
+			manager.setAuditSink(auditLog);
+			for (int i = 0; i < 50; i++) {
+				manager.invokeCommand(invoker, "ping", new String[0]);
+			}
+		}
+
+		assertTrue(Files.exists(file.resolveSibling("audit.log.1")));
+		assertTrue(Files.exists(file.resolveSibling("audit.log.2")));
+		assertTrue(Files.size(file) <= 200);
+	}
+
+	@Test
+	public void keepsWritingWhenRollOverFails() throws Exception {
+		Path file = folder.getRoot().toPath().resolve("audit.log");
+		// A non-empty directory in place of the rolled over file can't be replaced.
+		Path rolled = Files.createDirectory(file.resolveSibling("audit.log.1"));
+		Files.createFile(rolled.resolve("blocker"));
+		CommandManager manager = new CommandManager();
+		manager.registerHandler(new TestCommandHandler());
+		StubInvoker invoker = new StubInvoker();
+
+		try (CommandAuditLog auditLog = new CommandAuditLog(file, 4, CommandAuditLog.OverflowPolicy.BLOCK, 200, 1)) {
+			manager.setAuditSink(auditLog);
+			for (int i = 0; i < 20; i++) {
+				manager.invokeCommand(invoker, "ping", new String[0]);
+			}
+			assertEquals(0, auditLog.getDroppedCount());
+		}
+
+		assertEquals(20, Files.readAllLines(file, StandardCharsets.UTF_8).size());
+	}
+
+}
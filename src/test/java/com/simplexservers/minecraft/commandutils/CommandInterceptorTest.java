@@ -0,0 +1,95 @@
+package com.simplexservers.minecraft.commandutils;
+
+import org.junit.Test;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests composing interceptors around command methods.
+ *
+ * @author Zach Abney
+ */
+public class CommandInterceptorTest {
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target(ElementType.METHOD)
+	public @interface Logged {
+
+	}
+
+	@Test
+	public void interceptorsWrapSelectedMethodsInOrder() {
+		List<String> calls = new ArrayList<>();
+		InterceptedHandler handler = new InterceptedHandler(calls);
+		CommandManager manager = new CommandManager();
+		manager.registerHandler(handler);
+
+		// Added after registration, so the registered methods are recomposed.
+		manager.addInterceptor((sender, method, args, next) -> {
+			calls.add("outer");
+			next.execute(sender, args);
+		});
+		manager.addInterceptor((sender, method, args, next) -> {
+			calls.add("logged " + method.getMeta().getCommand());
+			next.execute(sender, args);
+		}, Logged.class);
+
+		assertTrue(manager.invokeCommand(new StubInvoker(), "logged", new String[0]));
+		assertEquals(3, calls.size());
+		assertEquals("outer", calls.get(0));
+		assertEquals("logged logged", calls.get(1));
+		assertEquals("executed logged", calls.get(2));
+
+		calls.clear();
+		assertTrue(manager.invokeCommand(new StubInvoker(), "plain", new String[0]));
+		assertEquals(2, calls.size());
+		assertEquals("outer", calls.get(0));
+		assertEquals("executed plain", calls.get(1));
+	}
+
+	@Test
+	public void interceptorCanStopExecution() {
+		List<String> calls = new ArrayList<>();
+		CommandManager manager = new CommandManager();
+		manager.addInterceptor((sender, method, args, next) -> sender.sendMessage("jailed"), method -> method.getMeta().getCommand().equals("plain"));
+		manager.registerHandler(new InterceptedHandler(calls));
+
+		StubInvoker invoker = new StubInvoker();
+		assertTrue(manager.invokeCommand(invoker, "plain", new String[0]));
+		assertEquals("jailed", invoker.getLastMessage());
+		assertTrue(calls.isEmpty());
+
+		assertTrue(manager.invokeCommand(invoker, "logged", new String[0]));
+		assertEquals(1, calls.size());
+	}
+
+	public static class InterceptedHandler implements CommandHandler {
+
+		private final List<String> calls;
+
+		public InterceptedHandler(List<String> calls) {
+			this.calls = calls;
+		}
+
+		@Logged
+		@CommandProperties(command = "logged", description = "A logged command.")
+		public void logged(Object sender) {
+			calls.add("executed logged");
+		}
+
+		@CommandProperties(command = "plain", description = "A plain command.")
+		public void plain(Object sender) {
+			calls.add("executed plain");
+		}
+
+	}
+
+}
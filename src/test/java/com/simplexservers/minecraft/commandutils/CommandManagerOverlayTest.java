@@ -0,0 +1,118 @@
+package com.simplexservers.minecraft.commandutils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests locking a CommandManager and overlaying it.
+ *
+ * @author Zach Abney
+ */
+public class CommandManagerOverlayTest {
+
+	@Test(expected = IllegalStateException.class)
+	public void registeringAfterLockFails() {
+		CommandManager manager = new CommandManager();
+		manager.registerHandler(new TestCommandHandler());
+		manager.lock();
+
+		assertTrue(manager.isLocked());
+		manager.registerHandler(new OverlayHandler());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void onlyLockedManagersCanBeOverlaid() {
+		new CommandManager().createOverlay();
+	}
+
+	@Test
+	public void overlayFallsThroughToItsParent() {
+		TestCommandHandler handler = new TestCommandHandler();
+		CommandManager parent = new CommandManager();
+		parent.registerHandler(handler);
+		parent.lock();
+
+		OverlayHandler overlayHandler = new OverlayHandler();
+		CommandManager overlay = parent.createOverlay();
+		overlay.registerHandler(overlayHandler);
+
+		StubInvoker invoker = new StubInvoker();
+		assertTrue(overlay.invokeCommand(invoker, "ping", new String[0]));
+		assertTrue(overlay.invokeCommand(invoker, "math", new String[] {"add", "2", "3"}));
+		assertTrue(overlay.invokeCommand(invoker, "math", new String[] {"mul", "2", "3"}));
+		assertEquals(1, handler.pings.get());
+		assertEquals(5, handler.sum.get());
+		assertEquals(6, overlayHandler.product);
+
+		// The parent is unchanged by the overlay.
+		assertFalse(parent.invokeCommand(invoker, "math", new String[] {"mul", "2", "3"}));
+		assertEquals(6, overlayHandler.product);
+	}
+
+	@Test
+	public void overlayHidesBaseCommandsAndSubcommands() {
+		TestCommandHandler handler = new TestCommandHandler();
+		CommandManager parent = new CommandManager();
+		parent.registerHandler(handler);
+		parent.lock();
+
+		CommandManager overlay = parent.createOverlay();
+		overlay.hideCommand("ping");
+		overlay.hideCommand("math add");
+		overlay.registerHandler(new OverlayHandler());
+		overlay.lock();
+
+		StubInvoker invoker = new StubInvoker();
+		assertFalse(overlay.invokeCommand(invoker, "ping", new String[0]));
+		assertFalse(overlay.invokeCommand(invoker, "math", new String[] {"add", "2", "3"}));
+		assertTrue(overlay.invokeCommand(invoker, "math", new String[] {"mul", "2", "3"}));
+		assertTrue(overlay.invokeCommand(invoker, "greet", new String[] {"Notch"}));
+		assertEquals(0, handler.pings.get());
+		assertEquals(0, handler.sum.get());
+
+		// Hidden commands are still available through the parent.
+		assertTrue(parent.invokeCommand(invoker, "ping", new String[0]));
+		assertTrue(parent.invokeCommand(invoker, "math", new String[] {"add", "2", "3"}));
+		assertEquals(1, handler.pings.get());
+		assertEquals(5, handler.sum.get());
+	}
+
+	@Test
+	public void overlayHidesBaseCommandsRegisteredBeforeHiding() {
+		TestCommandHandler handler = new TestCommandHandler();
+		CommandManager parent = new CommandManager();
+		parent.registerHandler(handler);
+		parent.lock();
+
+		// The overlay's own subcommand is registered under the base before the base is hidden.
+		OverlayHandler overlayHandler = new OverlayHandler();
+		CommandManager overlay = parent.createOverlay();
+		overlay.registerHandler(overlayHandler);
+		overlay.hideCommand("math");
+		overlay.lock();
+
+		StubInvoker invoker = new StubInvoker();
+		assertFalse(overlay.invokeCommand(invoker, "math", new String[] {"add", "2", "3"}));
+		assertTrue(overlay.invokeCommand(invoker, "math", new String[] {"mul", "2", "3"}));
+		assertEquals(0, handler.sum.get());
+		assertEquals(6, overlayHandler.product);
+	}
+
+	public static class OverlayHandler implements CommandHandler {
+
+		/**
+		 * The last product computed by the mul command.
+		 */
+		private int product;
+
+		@CommandProperties(command = "math mul", description = "Multiplies two numbers.", usage = "/math mul <int> <int>")
+		public void mul(Object sender, int a, int b) {
+			product = a * b;
+		}
+
+	}
+
+}
@@ -0,0 +1,153 @@
+package com.simplexservers.minecraft.commandutils;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests parsing commands off the main thread and draining them on it.
+ *
+ * @author Zach Abney
+ */
+public class CommandPipelineTest {
+
+	@Test(expected = IllegalStateException.class)
+	public void requiresALockedManager() {
+		new CommandPipeline(new CommandManager(), Runnable::run, 1, 1, TimeUnit.MILLISECONDS);
+	}
+
+	@Test
+	public void rejectsCommandsOverCapacity() {
+		List<String> calls = new ArrayList<>();
+		ManualExecutor workers = new ManualExecutor();
+		CommandPipeline pipeline = new CommandPipeline(createManager(calls), workers, 2, 1, TimeUnit.SECONDS);
+
+		StubInvoker invoker = new StubInvoker();
+		assertTrue(pipeline.submit(invoker, "echo", new String[] {"a"}));
+		assertTrue(pipeline.submit(invoker, "echo", new String[] {"b"}));
+		assertFalse(pipeline.submit(invoker, "echo", new String[] {"c"}));
+		assertEquals(CommandPipeline.BUSY_MESSAGE, invoker.getLastMessage());
+		assertEquals(2, pipeline.getPendingCount());
+
+		// Parsed commands still count against the capacity until they're drained.
+		workers.runAll();
+		assertFalse(pipeline.submit(invoker, "echo", new String[] {"c"}));
+		assertEquals(2, pipeline.drain());
+		assertEquals(0, pipeline.getPendingCount());
+		assertTrue(pipeline.submit(invoker, "echo", new String[] {"c"}));
+	}
+
+	@Test
+	public void drainsConsoleCommandsFirst() {
+		List<String> calls = new ArrayList<>();
+		CommandPipeline pipeline = new CommandPipeline(createManager(calls), Runnable::run, 8, 1, TimeUnit.SECONDS);
+
+		PlayerInvoker player = new PlayerInvoker();
+		StubInvoker console = new StubInvoker();
+		pipeline.submit(player, "echo", new String[] {"player1"});
+		pipeline.submit(console, "echo", new String[] {"console1"});
+		pipeline.submit(player, "echo", new String[] {"player2"});
+		pipeline.submit(console, "echo", new String[] {"console2"});
+
+		assertEquals(4, pipeline.drain());
+		assertEquals("console1", calls.get(0));
+		assertEquals("console2", calls.get(1));
+		assertEquals("player1", calls.get(2));
+		assertEquals("player2", calls.get(3));
+	}
+
+	@Test
+	public void drainStopsAtTheTickBudget() {
+		List<String> calls = new ArrayList<>();
+		CommandPipeline pipeline = new CommandPipeline(createManager(calls), Runnable::run, 8, 0, TimeUnit.NANOSECONDS);
+
+		StubInvoker invoker = new StubInvoker();
+		for (int i = 0; i < 3; i++) {
+			pipeline.submit(invoker, "echo", new String[] {Integer.toString(i)});
+		}
+
+		// An exhausted budget still executes one command per tick.
+		assertEquals(1, pipeline.drain());
+		assertEquals(1, pipeline.drain());
+		assertEquals(1, pipeline.drain());
+		assertEquals(0, pipeline.drain());
+		assertEquals(3, calls.size());
+	}
+
+	@Test
+	public void parseErrorsAreReportedToTheSender() {
+		List<String> calls = new ArrayList<>();
+		CommandPipeline pipeline = new CommandPipeline(createManager(calls), Runnable::run, 1, 1, TimeUnit.SECONDS);
+
+		StubInvoker invoker = new StubInvoker();
+		assertTrue(pipeline.submit(invoker, "broken", new String[] {"x"}));
+		assertEquals("§cAn error occurred while executing the broken command.", invoker.getLastMessage());
+		assertEquals(0, pipeline.getPendingCount());
+		assertEquals(0, pipeline.drain());
+	}
+
+	/**
+	 * Creates a locked CommandManager with an echo command recording its argument, and a command whose parser is broken.
+	 *
+	 * @param calls The list the echo command records its argument to.
+	 * @return The locked CommandManager.
+	 */
+	private static CommandManager createManager(List<String> calls) {
+		CommandManager manager = new CommandManager();
+		manager.command("echo")
+				.argument(String.class)
+				.executes((sender, args) -> calls.add((String) args[0]));
+		manager.command("broken")
+				.argument(String.class, input -> {
+					throw new IllegalStateException("The parser is broken.");
+				})
+				.executes((sender, args) -> calls.add("broken"));
+		return manager.lock();
+	}
+
+	/**
+	 * An executor that holds its tasks until they're run.
+	 */
+	private static class ManualExecutor implements Executor {
+
+		private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+		@Override
+		public void execute(Runnable task) {
+			tasks.add(task);
+		}
+
+		/**
+		 * Runs every held task.
+		 */
+		private void runAll() {
+			Runnable task;
+			while ((task = tasks.poll()) != null) {
+				task.run();
+			}
+		}
+
+	}
+
+	/**
+	 * A StubInvoker that is a player.
+	 */
+	private static class PlayerInvoker extends StubInvoker {
+
+		@Override
+		public boolean isPlayer() {
+			return true;
+		}
+
+	}
+
+}
@@ -0,0 +1,241 @@
+package com.simplexservers.minecraft.commandutils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests replaying the cached messages of cached commands.
+ *
+ * @author Zach Abney
+ */
+public class CommandResultCacheTest {
+
+	@Test
+	public void globalResultsAreSharedByEveryInvoker() {
+		CachedHandler handler = new CachedHandler();
+		CommandManager manager = new CommandManager();
+		manager.registerHandler(handler);
+
+		StubInvoker first = new StubInvoker();
+		StubInvoker second = new StubInvoker();
+		assertTrue(manager.invokeCommand(first, "top", new String[0]));
+		assertTrue(manager.invokeCommand(second, "top", new String[0]));
+		assertEquals(1, handler.topBuilds);
+		assertEquals("top 1", first.getLastMessage());
+		assertEquals("top 1", second.getLastMessage());
+		assertEquals(2, second.getMessageCount());
+
+		manager.getResultCache().clear();
+		manager.invokeCommand(second, "top", new String[0]);
+		assertEquals(2, handler.topBuilds);
+		assertEquals("top 2", second.getLastMessage());
+	}
+
+	@Test
+	public void invokerResultsAreKeptApart() {
+		CachedHandler handler = new CachedHandler();
+		CommandManager manager = new CommandManager();
+		manager.registerHandler(handler);
+
+		RecordingInvoker first = new RecordingInvoker("first");
+		RecordingInvoker second = new RecordingInvoker("second");
+		manager.invokeCommand(first, "balance", new String[] { "gold" });
+		manager.invokeCommand(first, "balance", new String[] { "gold" });
+		assertEquals(1, handler.balanceChecks);
+		assertEquals(Arrays.asList("1 gold", "1 gold"), first.messages);
+
+		// Different arguments or invokers miss the cache.
+		manager.invokeCommand(first, "balance", new String[] { "silver" });
+		manager.invokeCommand(second, "balance", new String[] { "gold" });
+		assertEquals(3, handler.balanceChecks);
+		assertEquals(Arrays.asList("3 gold"), second.messages);
+
+		// Invokers are told apart by their name, not their native invoker.
+		RecordingInvoker rejoined = new RecordingInvoker("first");
+		manager.invokeCommand(rejoined, "balance", new String[] { "gold" });
+		assertEquals(3, handler.balanceChecks);
+		assertEquals(Arrays.asList("1 gold"), rejoined.messages);
+	}
+
+	@Test
+	public void functionalResultsAreReplayed() {
+		CommandManager manager = new CommandManager();
+		int[] builds = new int[1];
+		manager.command("motd")
+				.cache(60_000, CacheScope.GLOBAL)
+				.executes((sender, args) -> {
+					builds[0]++;
+					sender.sendMessage("welcome");
+					sender.sendMessage("build " + builds[0]);
+				});
+
+		RecordingInvoker first = new RecordingInvoker("first");
+		RecordingInvoker second = new RecordingInvoker("second");
+		manager.invokeCommand(first, "motd", new String[0]);
+		manager.invokeCommand(second, "motd", new String[0]);
+		assertEquals(1, builds[0]);
+		assertEquals(Arrays.asList("welcome", "build 1"), second.messages);
+	}
+
+	@Test
+	public void permissionResultsDontCheckEveryNode() {
+		CachedHandler handler = new CachedHandler();
+		CommandManager manager = new CommandManager();
+		manager.registerHandler(handler);
+		PermissionNode.of("test.cache.unrelated");
+
+		RecordingInvoker invoker = new RecordingInvoker("first");
+		manager.invokeCommand(invoker, "rules", new String[0]);
+		manager.invokeCommand(invoker, "rules", new String[0]);
+		assertEquals(1, handler.rulesBuilds);
+		assertEquals(0, invoker.permissionChecks);
+		assertEquals(Arrays.asList("rules", "rules"), invoker.messages);
+	}
+
+	@Test
+	public void expiredResultsAreRebuilt() throws InterruptedException {
+		CachedHandler handler = new CachedHandler();
+		CommandManager manager = new CommandManager();
+		manager.registerHandler(handler);
+
+		StubInvoker invoker = new StubInvoker();
+		manager.invokeCommand(invoker, "uptime", new String[0]);
+		Thread.sleep(30);
+		manager.invokeCommand(invoker, "uptime", new String[0]);
+		assertEquals(2, handler.uptimeChecks);
+	}
+
+	@Test
+	public void vetoedInvocationsAreNeverCachedOrSkipped() {
+		CachedHandler handler = new CachedHandler();
+		CommandManager manager = new CommandManager();
+		RecordingInvoker jailed = new RecordingInvoker("jailed");
+		manager.addInterceptor((sender, method, args, next) -> {
+			if (sender.getName().equals("jailed")) {
+				sender.sendMessage("You're jailed.");
+				return;
+			}
+			next.execute(sender, args);
+		});
+		manager.registerHandler(handler);
+
+		// The veto isn't cached and replayed to other invokers.
+		manager.invokeCommand(jailed, "top", new String[0]);
+		RecordingInvoker free = new RecordingInvoker("free");
+		manager.invokeCommand(free, "top", new String[0]);
+		assertEquals(1, handler.topBuilds);
+		assertEquals(Arrays.asList("You're jailed."), jailed.messages);
+		assertEquals(Arrays.asList("header", "top 1"), free.messages);
+
+		// A cache hit still runs the interceptors.
+		jailed.messages.clear();
+		manager.invokeCommand(jailed, "top", new String[0]);
+		assertEquals(Arrays.asList("You're jailed."), jailed.messages);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void parallelCommandsCantBeCached() {
+		new CommandManager().command("scan")
+				.targets(FanOutTest.Member.class, FanOutMode.PARALLEL)
+				.cache(60_000, CacheScope.GLOBAL)
+				.executes((sender, args) -> { });
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void nativeInvokerCommandsCantBeCached() {
+		new CommandManager().registerHandler(new NativeCachedHandler());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invokerSubclassCommandsCantBeCached() {
+		new CommandManager().registerHandler(new SubclassCachedHandler());
+	}
+
+	private static class RecordingInvoker extends StubInvoker {
+
+		private final String name;
+		private final List<String> messages = new ArrayList<>();
+		private int permissionChecks = 0;
+
+		private RecordingInvoker(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public void sendMessage(String message) {
+			super.sendMessage(message);
+			messages.add(message);
+		}
+
+		@Override
+		public boolean hasPermission(String perm) {
+			permissionChecks++;
+			return super.hasPermission(perm);
+		}
+
+	}
+
+	public static class NativeCachedHandler implements CommandHandler {
+
+		@CommandProperties(command = "top", description = "Shows the top players.", cacheTtl = 60_000)
+		public void top(Object sender) {
+
+		}
+
+	}
+
+	public static class SubclassCachedHandler implements CommandHandler {
+
+		@CommandProperties(command = "top", description = "Shows the top players.", cacheTtl = 60_000)
+		public void top(StubInvoker sender) {
+
+		}
+
+	}
+
+	public static class CachedHandler implements CommandHandler {
+
+		private int topBuilds = 0;
+		private int balanceChecks = 0;
+		private int rulesBuilds = 0;
+		private int uptimeChecks = 0;
+
+		@CommandProperties(command = "top", description = "Shows the top players.", cacheTtl = 60_000)
+		public void top(CommandInvoker sender) {
+			topBuilds++;
+			sender.sendMessage("header");
+			sender.sendMessage("top " + topBuilds);
+		}
+
+		@CommandProperties(command = "balance", description = "Shows a balance.", usage = "/balance <currency>",
+				cacheTtl = 60_000, cacheScope = CacheScope.INVOKER)
+		public void balance(CommandInvoker sender, String currency) {
+			balanceChecks++;
+			sender.sendMessage(balanceChecks + " " + currency);
+		}
+
+		@CommandProperties(command = "rules", description = "Shows the rules.", cacheTtl = 60_000, cacheScope = CacheScope.PERMISSIONS)
+		public void rules(CommandInvoker sender) {
+			rulesBuilds++;
+			sender.sendMessage("rules");
+		}
+
+		@CommandProperties(command = "uptime", description = "Shows the uptime.", cacheTtl = 10)
+		public void uptime(CommandInvoker sender) {
+			uptimeChecks++;
+		}
+
+	}
+
+}
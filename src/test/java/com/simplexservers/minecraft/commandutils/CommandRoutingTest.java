@@ -0,0 +1,164 @@
+package com.simplexservers.minecraft.commandutils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests routing commands between nodes through a loopback transport.
+ *
+ * @author Zach Abney
+ */
+public class CommandRoutingTest {
+
+	@Test
+	public void commandsRunOnTheOwningNode() {
+		Map<String, String> owners = new HashMap<>();
+		owners.put("alice", "a");
+		owners.put("bob", "b");
+		NodeResolver resolver = key -> owners.get(key);
+		LoopbackTransport transport = new LoopbackTransport();
+
+		RoutedHandler handlerA = new RoutedHandler();
+		CommandManager managerA = new CommandManager();
+		managerA.registerHandler(handlerA);
+		CommandRouter routerA = new CommandRouter(managerA, "a", resolver, transport, name -> null, 16);
+
+		RoutedHandler handlerB = new RoutedHandler();
+		CommandManager managerB = new CommandManager();
+		managerB.registerHandler(handlerB);
+		StubInvoker console = new StubInvoker();
+		new CommandRouter(managerB, "b", resolver, transport, name -> name.equals(console.getName()) ? console : null, 16);
+
+		// Owned by this node, executed immediately.
+		assertTrue(managerA.invokeCommand(console, "kick", new String[] { "alice", "spam" }));
+		assertEquals(1, handlerA.kicked.size());
+
+		// Owned by another node, held until the batch is flushed.
+		assertTrue(managerA.invokeCommand(console, "kick", new String[] { "bob", "spam" }));
+		assertTrue(managerA.invokeCommand(console, "kick", new String[] { "bob", "again" }));
+		assertEquals(1, handlerA.kicked.size());
+		assertTrue(handlerB.kicked.isEmpty());
+
+		assertEquals(1, routerA.flush());
+		assertEquals(2, handlerB.kicked.size());
+		assertEquals("bob spam", handlerB.kicked.get(0));
+		assertEquals("bob again", handlerB.kicked.get(1));
+		assertEquals(0, routerA.flush());
+
+		// Commands without a routing argument always run locally.
+		assertTrue(managerA.invokeCommand(console, "status", new String[0]));
+		assertEquals(1, handlerA.statusChecks);
+	}
+
+	@Test
+	public void fullBatchesAreSentImmediately() {
+		LoopbackTransport transport = new LoopbackTransport();
+		CommandManager managerA = new CommandManager();
+		managerA.registerHandler(new RoutedHandler());
+		new CommandRouter(managerA, "a", key -> "b", transport, name -> null, 2);
+
+		RoutedHandler handlerB = new RoutedHandler();
+		CommandManager managerB = new CommandManager();
+		managerB.registerHandler(handlerB);
+		StubInvoker console = new StubInvoker();
+		new CommandRouter(managerB, "b", key -> "b", transport, name -> console, 2);
+
+		managerA.invokeCommand(console, "kick", new String[] { "carol", "one" });
+		assertTrue(handlerB.kicked.isEmpty());
+		managerA.invokeCommand(console, "kick", new String[] { "carol", "two" });
+		assertEquals(2, handlerB.kicked.size());
+	}
+
+	@Test
+	public void routedBatchesCarryRepeatedAndLongArguments() {
+		LoopbackTransport transport = new LoopbackTransport();
+		CommandManager managerA = new CommandManager();
+		managerA.registerHandler(new RoutedHandler());
+		CommandRouter routerA = new CommandRouter(managerA, "a", key -> "b", transport, name -> null, 16);
+
+		RoutedHandler handlerB = new RoutedHandler();
+		CommandManager managerB = new CommandManager();
+		managerB.registerHandler(handlerB);
+		StubInvoker console = new StubInvoker();
+		new CommandRouter(managerB, "b", key -> "b", transport, name -> console, 16);
+
+		char[] chars = new char[70_000];
+		Arrays.fill(chars, 'x');
+		String longReason = new String(chars);
+		managerA.invokeCommand(console, "kick", new String[] { "dave", "5" });
+		managerA.invokeCommand(console, "kick", new String[] { "dave", longReason });
+		assertEquals(1, routerA.flush());
+
+		assertEquals(2, handlerB.kicked.size());
+		assertEquals("dave 5", handlerB.kicked.get(0));
+		assertEquals("dave " + longReason, handlerB.kicked.get(1));
+	}
+
+	@Test
+	public void routedCommandsRespectTheReceivingEnvironment() {
+		LoopbackTransport transport = new LoopbackTransport();
+		CommandManager managerA = new CommandManager();
+		managerA.registerHandler(new RoutedHandler());
+		CommandRouter routerA = new CommandRouter(managerA, "a", key -> "b", transport, name -> null, 16);
+
+		// Node b only allows the command in another environment.
+		List<String> kicked = new ArrayList<>();
+		List<CommandOutcome> outcomes = new ArrayList<>();
+		CommandManager managerB = new CommandManager();
+		managerB.command("kick")
+				.environments(EnvironmentFlags.CURRENT_FLAG == EnvironmentFlags.LOCAL ? EnvironmentFlags.DEV : EnvironmentFlags.LOCAL)
+				.routingArgument(0)
+				.argument(String.class)
+				.argument(String.class)
+				.executes((sender, args) -> kicked.add(args[0] + " " + args[1]));
+		managerB.setAuditSink((invoker, baseCommand, subcommand, args, outcome, durationNanos) -> outcomes.add(outcome));
+		StubInvoker console = new StubInvoker();
+		new CommandRouter(managerB, "b", key -> "b", transport, name -> console, 16);
+
+		managerA.invokeCommand(console, "kick", new String[] { "erin", "spam" });
+		assertEquals(1, routerA.flush());
+		assertTrue(kicked.isEmpty());
+		assertEquals(Collections.singletonList(CommandOutcome.UNKNOWN_COMMAND), outcomes);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void routingArgumentMustBeAParsedArgument() {
+		new CommandManager().registerHandler(new InvalidRoutingHandler());
+	}
+
+	public static class InvalidRoutingHandler implements CommandHandler {
+
+		@CommandProperties(command = "ban", description = "Bans a player.", usage = "/ban <player>", routingArgument = 1)
+		public void ban(Object sender, String player) {
+
+		}
+
+	}
+
+	public static class RoutedHandler implements CommandHandler {
+
+		private final List<String> kicked = new ArrayList<>();
+		private int statusChecks = 0;
+
+		@CommandProperties(command = "kick", description = "Kicks a player.", usage = "/kick <player> <reason>", routingArgument = 0)
+		public void kick(Object sender, String player, String reason) {
+			kicked.add(player + " " + reason);
+		}
+
+		@CommandProperties(command = "status", description = "Shows the node status.", usage = "/status")
+		public void status(Object sender) {
+			statusChecks++;
+		}
+
+	}
+
+}
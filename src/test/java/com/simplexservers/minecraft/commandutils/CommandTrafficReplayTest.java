@@ -0,0 +1,92 @@
+package com.simplexservers.minecraft.commandutils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests recording command traffic and replaying it.
+ *
+ * @author Zach Abney
+ */
+public class CommandTrafficReplayTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void recordedTrafficReplaysIntoManager() throws Exception {
+		Path file = folder.getRoot().toPath().resolve("traffic.bin");
+		CommandManager recorded = new CommandManager();
+		recorded.registerHandler(new TestCommandHandler());
+		StubInvoker invoker = new StubInvoker();
+
+		try (CommandTrafficRecorder recorder = new CommandTrafficRecorder(file)) {
+			recorded.setTrafficRecorder(recorder);
+			for (int i = 0; i < 100; i++) {
+				recorded.invokeCommand(invoker, "math", new String[] {"add", Integer.toString(i), "1"});
+				recorded.invokeCommand(invoker, "ping", new String[0]);
+			}
+		}
+
+		List<RecordedCommand> commands = CommandTrafficRecorder.read(file);
+		assertEquals(200, commands.size());
+		assertEquals("math", commands.get(0).getBaseCommand());
+		assertArrayEquals(new String[] {"add", "0", "1"}, commands.get(0).getArgs());
+		assertEquals(invoker.getName(), commands.get(1).getInvokerName());
+		assertTrue(commands.get(199).getOffsetNanos() >= commands.get(0).getOffsetNanos());
+
+		TestCommandHandler handler = new TestCommandHandler();
+		CommandManager replayed = new CommandManager();
+		replayed.registerHandler(handler);
+		replayed.lock();
+		ReplayReport report = new CommandTrafficReplayer(replayed, commands).replay(CommandTrafficReplayer.FLAT_OUT, 4);
+
+		assertEquals(200, report.getCommandCount());
+		assertEquals(100, handler.pings.get());
+		assertEquals(100 * 99 / 2 + 100, handler.sum.get());
+		assertTrue(report.getLatencyPercentile(50) <= report.getLatencyPercentile(99));
+	}
+
+	@Test
+	public void recordsArgumentsLongerThanModifiedUtf() throws Exception {
+		Path file = folder.getRoot().toPath().resolve("traffic.bin");
+		char[] chars = new char[40_000];
+		Arrays.fill(chars, '\u00e9'); // Two bytes each in UTF-8
+		String longArgument = new String(chars);
+		StubInvoker invoker = new StubInvoker();
+
+		try (CommandTrafficRecorder recorder = new CommandTrafficRecorder(file)) {
+			recorder.record(invoker, "say", new String[] {longArgument});
+			recorder.record(invoker, "ping", new String[0]);
+		}
+
+		List<RecordedCommand> commands = CommandTrafficRecorder.read(file);
+		assertEquals(2, commands.size());
+		assertEquals(longArgument, commands.get(0).getArgs()[0]);
+		assertEquals("ping", commands.get(1).getBaseCommand());
+	}
+
+	@Test(expected = IOException.class)
+	public void emptyFilesAreNotRecordings() throws Exception {
+		Path file = Files.createFile(folder.getRoot().toPath().resolve("empty.bin"));
+		CommandTrafficRecorder.read(file);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void replayingRequiresALockedManager() {
+		new CommandTrafficReplayer(new CommandManager(), Collections.emptyList());
+	}
+
+}
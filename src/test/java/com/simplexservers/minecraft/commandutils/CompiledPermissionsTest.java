@@ -0,0 +1,66 @@
+package com.simplexservers.minecraft.commandutils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests checking permissions through compiled permissions.
+ *
+ * @author Zach Abney
+ */
+public class CompiledPermissionsTest {
+
+	@Test
+	public void permissionsAreCompiledOncePerVersion() {
+		PermissionNode granted = PermissionNode.of("test.compiled.granted");
+		PermissionNode denied = PermissionNode.of("test.compiled.denied");
+		CompilingInvoker invoker = new CompilingInvoker();
+
+		assertTrue(invoker.hasPermission(granted));
+		assertFalse(invoker.hasPermission(denied));
+		int lookups = invoker.lookups;
+		assertEquals(PermissionNode.count(), lookups);
+
+		// Checks against the same version are bit tests.
+		CompiledPermissions compiled = invoker.getCompiledPermissions();
+		assertTrue(invoker.hasPermission(granted));
+		assertSame(compiled, invoker.getCompiledPermissions());
+		assertEquals(lookups, invoker.lookups);
+
+		// Only the new node is checked when a node is interned.
+		PermissionNode added = PermissionNode.of("test.compiled.added");
+		assertFalse(invoker.hasPermission(added));
+		assertEquals(lookups + 1, invoker.lookups);
+
+		// Everything is recompiled when the version changes.
+		invoker.deny = "test.compiled.granted";
+		invoker.version++;
+		assertFalse(invoker.hasPermission(granted));
+		assertEquals(lookups + 1 + PermissionNode.count(), invoker.lookups);
+	}
+
+	private static class CompilingInvoker extends StubInvoker implements PermissionCompilingInvoker {
+
+		private String deny = "";
+		private long version = 0;
+		private int lookups = 0;
+		private CompiledPermissions compiled;
+
+		@Override
+		public boolean hasPermission(String perm) {
+			lookups++;
+			return !perm.equals(deny) && !perm.equals("test.compiled.denied") && !perm.equals("test.compiled.added");
+		}
+
+		@Override
+		public CompiledPermissions getCompiledPermissions() {
+			return compiled = CompiledPermissions.update(compiled, this, version);
+		}
+
+	}
+
+}
@@ -0,0 +1,72 @@
+package com.simplexservers.minecraft.commandutils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Stress tests dispatching commands from many threads at once.
+ *
+ * @author Zach Abney
+ */
+public class ConcurrentDispatchTest {
+
+	private static final int THREADS = 8;
+	private static final int ITERATIONS = 20_000;
+
+	@Test
+	public void concurrentInvocationsAreDispatchedCorrectly() throws Exception {
+		TestCommandHandler handler = new TestCommandHandler();
+		CommandManager manager = new CommandManager();
+		manager.registerHandler(handler);
+		manager.lock();
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<Integer>> results = new ArrayList<>();
+		try {
+			for (int t = 0; t < THREADS; t++) {
+				int thread = t;
+				results.add(executor.submit((Callable<Integer>) () -> {
+					StubInvoker invoker = new StubInvoker();
+					start.await();
+					for (int i = 0; i < ITERATIONS; i++) {
+						assertTrue(manager.invokeCommand(invoker, "ping", new String[0]));
+						assertTrue(manager.invokeCommand(invoker, "math", new String[] {"add", Integer.toString(thread), Integer.toString(i)}));
+						assertTrue(manager.invokeCommand(invoker, "greet", new String[] {"t" + thread}));
+						assertFalse(manager.invokeCommand(invoker, "math", new String[] {"add", "x", "1"}));
+						assertFalse(manager.invokeCommand(invoker, "unknown", new String[0]));
+					}
+					return invoker.getMessageCount();
+				}));
+			}
+			start.countDown();
+
+			for (Future<Integer> result : results) {
+				// Only the parse failures should have messaged the invoker.
+				assertEquals(ITERATIONS, result.get().intValue());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		long expectedSum = 0;
+		for (int t = 0; t < THREADS; t++) {
+			expectedSum += (long) t * ITERATIONS + (long) ITERATIONS * (ITERATIONS - 1) / 2;
+		}
+		assertEquals(THREADS * ITERATIONS, handler.pings.get());
+		assertEquals(expectedSum, handler.sum.get());
+		assertEquals(2L * THREADS * ITERATIONS, handler.greeted.get());
+	}
+
+}
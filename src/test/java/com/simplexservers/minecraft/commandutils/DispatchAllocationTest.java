@@ -0,0 +1,107 @@
+package com.simplexservers.minecraft.commandutils;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Asserts the bytes allocated per dispatch stay within budget for each scenario.
+ *
+ * @author Zach Abney
+ */
+public class DispatchAllocationTest {
+
+	/**
+	 * The amount of dispatches run before measuring so the hot path is compiled.
+	 */
+	private static final int WARM_UP_ITERATIONS = 50_000;
+	/**
+	 * The amount of dispatches averaged over when measuring.
+	 */
+	private static final int MEASURED_ITERATIONS = 20_000;
+
+	/**
+	 * The JVM's thread bean with allocation counters.
+	 */
+	private static com.sun.management.ThreadMXBean threadBean;
+
+	private final TestCommandHandler handler = new TestCommandHandler();
+	private final CommandManager manager = new CommandManager();
+	private final StubInvoker invoker = new StubInvoker();
+
+	@BeforeClass
+	public static void checkAllocationCounters() {
+		assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+		threadBean.setThreadAllocatedMemoryEnabled(true);
+	}
+
+	public DispatchAllocationTest() {
+		manager.registerHandler(handler);
+	}
+
+	@Test
+	public void noArgumentCommand() {
+		String[] args = {};
+		assertBudget(512, () -> assertTrue(manager.invokeCommand(invoker, "ping", args)));
+		assertEquals(WARM_UP_ITERATIONS + MEASURED_ITERATIONS, handler.pings.get());
+	}
+
+	@Test
+	public void numericArguments() {
+		String[] args = {"add", "2", "3"};
+		assertBudget(2_048, () -> assertTrue(manager.invokeCommand(invoker, "math", args)));
+		assertEquals(5L * (WARM_UP_ITERATIONS + MEASURED_ITERATIONS), handler.sum.get());
+	}
+
+	@Test
+	public void userDefinedParser() {
+		String[] args = {"Notch"};
+		assertBudget(1_536, () -> assertTrue(manager.invokeCommand(invoker, "greet", args)));
+		assertEquals(5L * (WARM_UP_ITERATIONS + MEASURED_ITERATIONS), handler.greeted.get());
+	}
+
+	@Test
+	public void parseFailure() {
+		String[] args = {"add", "two", "3"};
+		assertBudget(8_192, () -> assertFalse(manager.invokeCommand(invoker, "math", args)));
+		assertEquals(0, handler.sum.get());
+	}
+
+	@Test
+	public void unknownCommand() {
+		String[] args = {"add", "2", "3"};
+		assertBudget(64, () -> assertFalse(manager.invokeCommand(invoker, "unknown", args)));
+		assertEquals(0, invoker.getMessageCount());
+	}
+
+	/**
+	 * Runs the dispatch enough times to be compiled, then asserts the average
+	 * bytes it allocates stay within the budget.
+	 *
+	 * @param bytesPerDispatch The allocation budget per dispatch in bytes.
+	 * @param dispatch The dispatch to measure.
+	 */
+	private static void assertBudget(long bytesPerDispatch, Runnable dispatch) {
+		for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+			dispatch.run();
+		}
+
+		long threadId = Thread.currentThread().getId();
+		long before = threadBean.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+			dispatch.run();
+		}
+		long allocated = (threadBean.getThreadAllocatedBytes(threadId) - before) / MEASURED_ITERATIONS;
+
+		assertTrue("Allocated " + allocated + " bytes per dispatch, budget is " + bytesPerDispatch, allocated <= bytesPerDispatch);
+	}
+
+}
@@ -0,0 +1,121 @@
+package com.simplexservers.minecraft.commandutils;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests joining and dropping duplicate invocations of an executing command.
+ *
+ * @author Zach Abney
+ */
+public class DuplicateInvocationTest {
+
+	private final SlowHandler handler = new SlowHandler();
+	private final CommandManager manager = new CommandManager();
+	private final Object player = new Object();
+
+	public DuplicateInvocationTest() {
+		manager.registerHandler(handler);
+	}
+
+	@Test
+	public void duplicateIsDropped() throws Exception {
+		Thread running = invokeInBackground("scan", "world");
+		assertTrue(handler.started.await(5, TimeUnit.SECONDS));
+
+		PlayerInvoker duplicate = new PlayerInvoker(player);
+		assertTrue(manager.invokeCommand(duplicate, "scan", new String[] {"world"}));
+		assertEquals(CommandManager.DUPLICATE_COMMAND_MESSAGE, duplicate.getLastMessage());
+
+		// Different arguments aren't a duplicate.
+		handler.release.countDown();
+		assertTrue(manager.invokeCommand(new PlayerInvoker(player), "scan", new String[] {"nether"}));
+		running.join();
+		assertEquals(2, handler.executions.get());
+	}
+
+	@Test
+	public void duplicateJoinsExecutingInvocationWithoutBlocking() throws Exception {
+		List<CommandOutcome> outcomes = new CopyOnWriteArrayList<>();
+		manager.setAuditSink((invoker, baseCommand, subcommand, args, outcome, durationNanos) -> outcomes.add(outcome));
+		Thread running = invokeInBackground("stats", "top");
+		assertTrue(handler.started.await(5, TimeUnit.SECONDS));
+
+		// The first invocation is blocked, the duplicate returns straight away without executing.
+		PlayerInvoker duplicate = new PlayerInvoker(player);
+		assertTrue(manager.invokeCommand(duplicate, "stats", new String[] {"top"}));
+		assertEquals(0, duplicate.getMessageCount());
+		assertTrue(outcomes.isEmpty());
+		assertTrue(running.isAlive());
+
+		// The duplicate receives the messages of the invocation it joined once it finishes.
+		handler.release.countDown();
+		running.join();
+		assertEquals(1, handler.executions.get());
+		assertEquals(1, duplicate.getMessageCount());
+		assertEquals("top players", duplicate.getLastMessage());
+		assertEquals(2, outcomes.size());
+		assertTrue(outcomes.contains(CommandOutcome.SUCCESS));
+		assertTrue(outcomes.contains(CommandOutcome.DUPLICATE));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void joinedCommandsMustTakeTheInvoker() {
+		new CommandManager().registerHandler(new NativeJoinedHandler());
+	}
+
+	private Thread invokeInBackground(String command, String arg) {
+		Thread thread = new Thread(() -> manager.invokeCommand(new PlayerInvoker(player), command, new String[] {arg}));
+		thread.start();
+		return thread;
+	}
+
+	private static class PlayerInvoker extends StubInvoker {
+
+		private PlayerInvoker(Object player) {
+			super(player, null);
+		}
+
+	}
+
+	public static class NativeJoinedHandler implements CommandHandler {
+
+		@CommandProperties(command = "stats", description = "A slow query.", duplicates = DuplicatePolicy.JOIN)
+		public void stats(Object sender, String board) {
+
+		}
+
+	}
+
+	public static class SlowHandler implements CommandHandler {
+
+		private final CountDownLatch started = new CountDownLatch(1);
+		private final CountDownLatch release = new CountDownLatch(1);
+		private final AtomicInteger executions = new AtomicInteger();
+
+		@CommandProperties(command = "scan", description = "A slow command.", duplicates = DuplicatePolicy.DROP)
+		public void scan(Object sender, String world) throws InterruptedException {
+			executions.incrementAndGet();
+			started.countDown();
+			release.await(5, TimeUnit.SECONDS);
+		}
+
+		@CommandProperties(command = "stats", description = "A slow query.", duplicates = DuplicatePolicy.JOIN)
+		public void stats(CommandInvoker sender, String board) throws InterruptedException {
+			executions.incrementAndGet();
+			started.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			sender.sendMessage(board + " players");
+		}
+
+	}
+
+}
@@ -0,0 +1,193 @@
+package com.simplexservers.minecraft.commandutils;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests executing commands once for each target of a selector argument.
+ *
+ * @author Zach Abney
+ */
+public class FanOutTest {
+
+	static {
+		ParameterType.registerParameterType(Member.class, Member::new);
+		ParameterType.registerTargetParser(Member.class, input -> {
+			if (!input.startsWith("team:")) return Collections.singletonList(new Member(input));
+
+			List<Member> members = new ArrayList<>();
+			for (int i = 0; i < Integer.parseInt(input.substring(5)); i++) {
+				members.add(new Member("member" + i));
+			}
+			return members;
+		});
+	}
+
+	@Test
+	public void serialFanOutRunsOncePerTarget() {
+		FannedHandler handler = new FannedHandler();
+		CommandManager manager = new CommandManager();
+		manager.registerHandler(handler);
+
+		StubInvoker invoker = new StubInvoker();
+		assertTrue(manager.invokeCommand(invoker, "heal", new String[] { "team:5", "10" }));
+		assertEquals(Arrays.asList("member0", "member1", "member2", "member3", "member4"), handler.healed);
+		assertEquals("§a/heal was executed for 5 targets.", invoker.getLastMessage());
+
+		// A single target runs as a plain command.
+		handler.healed.clear();
+		manager.invokeCommand(invoker, "heal", new String[] { "alice", "10" });
+		assertEquals(Collections.singletonList("alice"), handler.healed);
+		assertEquals(1, invoker.getMessageCount());
+
+		// Selectors that match nothing are reported like any parse error.
+		assertFalse(manager.invokeCommand(invoker, "heal", new String[] { "team:0", "10" }));
+		assertTrue(invoker.getLastMessage().startsWith("'team:0' didn't match anything."));
+	}
+
+	@Test
+	public void parallelFanOutCountsFailures() {
+		Queue<String> kicked = new ConcurrentLinkedQueue<>();
+		CommandManager manager = new CommandManager();
+		manager.command("kick")
+				.targets(Member.class, FanOutMode.PARALLEL)
+				.executes((sender, args) -> {
+					Member member = (Member) args[0];
+					if (member.name.equals("member3")) throw new IllegalStateException("Can't kick " + member.name);
+					kicked.add(member.name);
+				});
+
+		StubInvoker invoker = new StubInvoker();
+		manager.invokeCommand(invoker, "kick", new String[] { "team:64" });
+		assertEquals(63, kicked.size());
+		assertEquals("§e/kick was executed for 63 of 64 targets, §c1 failed§e.", invoker.getLastMessage());
+	}
+
+	@Test
+	public void tickedFanOutRunsChunksOnTheMainThread() {
+		Queue<Runnable> ticks = new ArrayDeque<>();
+		List<String> frozen = new ArrayList<>();
+		CommandManager manager = new CommandManager();
+		manager.getFanOut().setMainThreadExecutor(ticks::add);
+		manager.getFanOut().setChunkSize(4);
+		manager.command("freeze")
+				.targets(Member.class, FanOutMode.TICKED)
+				.executes((sender, args) -> frozen.add(((Member) args[0]).name));
+
+		List<CommandOutcome> outcomes = new ArrayList<>();
+		manager.setAuditSink((invoker, baseCommand, subcommand, args, outcome, durationNanos) -> outcomes.add(outcome));
+
+		StubInvoker invoker = new StubInvoker();
+		manager.invokeCommand(invoker, "freeze", new String[] { "team:10" });
+		assertEquals(4, frozen.size());
+		assertEquals(Collections.singletonList(CommandOutcome.SCHEDULED), outcomes);
+
+		int tickCount = 0;
+		while (!ticks.isEmpty()) {
+			ticks.poll().run();
+			tickCount++;
+		}
+		assertEquals(2, tickCount);
+		assertEquals(10, frozen.size());
+		assertEquals("§a/freeze was executed for 10 targets.", invoker.getLastMessage());
+	}
+
+	@Test
+	public void invalidLazyArgumentsAreReportedOnce() {
+		List<String> frozen = new ArrayList<>();
+		CommandManager manager = new CommandManager();
+		manager.command("freeze")
+				.usage("/freeze <players> <seconds>")
+				.targets(Member.class, FanOutMode.SERIAL)
+				.lazyArgument(int.class)
+				.executes((sender, args) -> frozen.add(args[0] + " " + ((Lazy<?>) args[1]).get()));
+
+		List<String> messages = new ArrayList<>();
+		StubInvoker invoker = new StubInvoker() {
+			@Override
+			public void sendMessage(String message) {
+				messages.add(message);
+			}
+		};
+		manager.invokeCommand(invoker, "freeze", new String[] { "team:3", "long" });
+		assertTrue(frozen.isEmpty());
+		assertEquals(Arrays.asList("'long' must be a whole number.\n§cUsage: /freeze <players> <seconds>",
+				"§e/freeze was executed for 0 of 3 targets, §c3 failed§e."), messages);
+	}
+
+	@Test(expected = FatalError.class)
+	public void parallelFanOutRethrowsErrors() {
+		CommandManager manager = new CommandManager();
+		manager.command("kick")
+				.targets(Member.class, FanOutMode.PARALLEL)
+				.executes((sender, args) -> {
+					throw new FatalError();
+				});
+
+		manager.invokeCommand(new StubInvoker(), "kick", new String[] { "team:8" });
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void tickedFanOutCantBeDeduplicated() {
+		new CommandManager().command("freeze")
+				.targets(Member.class, FanOutMode.TICKED)
+				.duplicates(DuplicatePolicy.JOIN)
+				.executes((sender, args) -> { });
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void tickedFanOutCantBeCached() {
+		new CommandManager().command("freeze")
+				.targets(Member.class, FanOutMode.TICKED)
+				.cache(60_000, CacheScope.GLOBAL)
+				.executes((sender, args) -> { });
+	}
+
+	/**
+	 * An error thrown by a command body.
+	 */
+	private static class FatalError extends Error {
+
+	}
+
+	/**
+	 * A parameter type that can be selected in groups.
+	 */
+	public static class Member {
+
+		private final String name;
+
+		public Member(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+
+	}
+
+	public static class FannedHandler implements CommandHandler {
+
+		private final List<String> healed = new ArrayList<>();
+
+		@CommandProperties(command = "heal", description = "Heals players.", usage = "/heal <players> <amount>", fanOutArgument = 0)
+		public void heal(Object sender, Member member, int amount) {
+			healed.add(member.name);
+		}
+
+	}
+
+}
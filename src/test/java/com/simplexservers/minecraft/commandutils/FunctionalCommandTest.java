@@ -0,0 +1,86 @@
+package com.simplexservers.minecraft.commandutils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests registering commands through the functional builder.
+ *
+ * @author Zach Abney
+ */
+public class FunctionalCommandTest {
+
+	@Test
+	public void builtCommandsParseAndExecute() {
+		List<String> calls = new ArrayList<>();
+		CommandManager manager = new CommandManager();
+		CommandMethod method = manager.command("warp set")
+				.aliases("setwarp")
+				.description("Sets a warp.")
+				.usage("/warp set <name> <radius>")
+				.argument(String.class)
+				.argument(int.class)
+				.executes((sender, args) -> calls.add(args[0] + " " + ((Integer) args[1] + 1)));
+		assertNull(method.getMethod());
+		assertEquals(2, method.getArity());
+
+		StubInvoker invoker = new StubInvoker();
+		assertTrue(manager.invokeCommand(invoker, "warp", new String[] { "set", "home", "4" }));
+		assertTrue(manager.invokeCommand(invoker, "setwarp", new String[] { "mine", "9" }));
+		assertEquals(2, calls.size());
+		assertEquals("home 5", calls.get(0));
+		assertEquals("mine 10", calls.get(1));
+
+		// The bound parser reports bad input like an annotated command.
+		assertFalse(manager.invokeCommand(invoker, "warp", new String[] { "set", "home", "far" }));
+		assertEquals(2, calls.size());
+		assertTrue(invoker.getLastMessage().endsWith("§cUsage: /warp set <name> <radius>"));
+	}
+
+	@Test
+	public void builtCommandsUseCustomParsersAndPermissions() {
+		List<Object> calls = new ArrayList<>();
+		CommandManager manager = new CommandManager();
+		manager.command("shout")
+				.permission("chat.shout")
+				.argument(String.class, input -> input.toUpperCase())
+				.executes((sender, args) -> calls.add(args[0]));
+		manager.command("echo")
+				.rawArguments()
+				.executes((sender, args) -> calls.add(String.join(",", (String[]) args[0])));
+
+		manager.invokeCommand(new StubInvoker("chat.shout"), "shout", new String[] { "hey" });
+		assertTrue(calls.isEmpty());
+
+		manager.invokeCommand(new StubInvoker(), "shout", new String[] { "hey" });
+		manager.invokeCommand(new StubInvoker(), "echo", new String[] { "a", "b" });
+		assertEquals("HEY", calls.get(0));
+		assertEquals("a,b", calls.get(1));
+	}
+
+	@Test
+	public void buildersRegisterTheirCommandOnce() {
+		List<Object> calls = new ArrayList<>();
+		CommandManager manager = new CommandManager();
+		CommandBuilder builder = manager.command("ping");
+		builder.executes((sender, args) -> calls.add("first"));
+		try {
+			builder.executes((sender, args) -> calls.add("second"));
+			fail("A builder registered its command twice.");
+		} catch (IllegalStateException expected) {
+		}
+
+		manager.invokeCommand(new StubInvoker(), "ping", new String[0]);
+		assertEquals(1, calls.size());
+		assertEquals("first", calls.get(0));
+	}
+
+}
@@ -0,0 +1,76 @@
+package com.simplexservers.minecraft.commandutils;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests searching the help through the inverted index.
+ *
+ * @author Zach Abney
+ */
+public class HelpSearchTest {
+
+	@Test
+	public void searchRanksCommandMatchesFirst() {
+		CommandManager manager = new CommandManager();
+		manager.registerHandler(new SearchedHandler());
+
+		List<CommandDescriptor> results = HelpCommandUtil.getSearchIndex(manager).search("warp", null, 10);
+		assertEquals(3, results.size());
+		assertEquals("warp", results.get(0).getCommand());
+		assertEquals("warp set", results.get(1).getCommand());
+		assertEquals("spawn", results.get(2).getCommand());
+
+		// Prefixes match, and every query token must match.
+		results = HelpCommandUtil.getSearchIndex(manager).search("wa se", null, 10);
+		assertEquals(1, results.size());
+		assertEquals("warp set", results.get(0).getCommand());
+		assertEquals("spawn", HelpCommandUtil.getSearchIndex(manager).search("tp", null, 10).get(0).getCommand());
+		assertTrue(HelpCommandUtil.getSearchIndex(manager).search("fly", null, 10).isEmpty());
+	}
+
+	@Test
+	public void searchHelpFiltersByPermission() {
+		CommandManager manager = new CommandManager();
+		manager.registerHandler(new SearchedHandler());
+
+		String help = HelpCommandUtil.searchHelp(manager, new StubInvoker("warps.admin"), "warp");
+		assertEquals("§9/warp§f - §eTeleports you to a warp.\n§9/spawn§f - §eTeleports you to spawn, the default warp.", help);
+	}
+
+	@Test
+	public void indexIsRebuiltWhenTheRegistryChanges() {
+		CommandManager manager = new CommandManager();
+		manager.registerHandler(new SearchedHandler());
+		CommandSearchIndex index = HelpCommandUtil.getSearchIndex(manager);
+		assertSame(index, HelpCommandUtil.getSearchIndex(manager));
+
+		manager.registerHandler(new TestCommandHandler());
+		assertNotSame(index, HelpCommandUtil.getSearchIndex(manager));
+		assertEquals("ping", HelpCommandUtil.getSearchIndex(manager).search("ping", null, 10).get(0).getCommand());
+	}
+
+	public static class SearchedHandler implements CommandHandler {
+
+		@CommandProperties(command = "warp", aliases = "go", description = "Teleports you to a warp.", usage = "/warp <name>")
+		public void warp(Object sender, String name) {
+		}
+
+		@CommandProperties(command = "warp set", description = "Sets a warp at your location.", usage = "/warp set <name>",
+				permission = "warps.admin")
+		public void setWarp(Object sender, String name) {
+		}
+
+		@CommandProperties(command = "spawn", aliases = "tpspawn", description = "Teleports you to spawn, the default warp.")
+		public void spawn(Object sender) {
+		}
+
+	}
+
+}
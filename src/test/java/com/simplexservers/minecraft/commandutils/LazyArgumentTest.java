@@ -0,0 +1,114 @@
+package com.simplexservers.minecraft.commandutils;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests arguments that are only parsed when the command asks for them.
+ *
+ * @author Zach Abney
+ */
+public class LazyArgumentTest {
+
+	@Test
+	public void lazyArgumentsAreParsedOnDemandOnce() {
+		LazyHandler handler = new LazyHandler();
+		CommandManager manager = new CommandManager();
+		manager.registerHandler(handler);
+
+		// The branch that doesn't use the amount never parses it.
+		StubInvoker invoker = new StubInvoker();
+		assertTrue(manager.invokeCommand(invoker, "pay", new String[] { "nobody", "lots" }));
+		assertEquals(0, invoker.getMessageCount());
+
+		assertTrue(manager.invokeCommand(invoker, "pay", new String[] { "bob", "25" }));
+		assertEquals(50, handler.paid);
+	}
+
+	@Test
+	public void deferredParseErrorsAreReportedWithTheUsage() {
+		LazyHandler handler = new LazyHandler();
+		CommandManager manager = new CommandManager();
+		manager.registerHandler(handler);
+
+		StubInvoker invoker = new StubInvoker();
+		assertFalse(manager.invokeCommand(invoker, "pay", new String[] { "bob", "lots" }));
+		assertEquals("'lots' must be a whole number.\n§cUsage: /pay <player> <amount>", invoker.getLastMessage());
+		assertEquals(0, handler.paid);
+	}
+
+	@Test
+	public void builtCommandsTakeLazyArguments() {
+		AtomicInteger lookups = new AtomicInteger();
+		CommandManager manager = new CommandManager();
+		manager.command("whois")
+				.argument(boolean.class)
+				.lazyArgument(String.class, input -> {
+					lookups.incrementAndGet();
+					return input.toUpperCase();
+				})
+				.executes((sender, args) -> {
+					if (!(Boolean) args[0]) return;
+					Lazy<?> name = (Lazy<?>) args[1];
+					// Memoized, so both reads parse the argument once.
+					sender.sendMessage(name.get().toString() + " " + name.get());
+				});
+
+		StubInvoker invoker = new StubInvoker();
+		manager.invokeCommand(invoker, "whois", new String[] { "false", "alice" });
+		assertEquals(0, lookups.get());
+		manager.invokeCommand(invoker, "whois", new String[] { "true", "alice" });
+		assertEquals(1, lookups.get());
+		assertEquals("ALICE ALICE", invoker.getLastMessage());
+	}
+
+	@Test
+	public void eagerOverloadsAreTriedBeforeLazyOverloads() {
+		CommandManager manager = new CommandManager();
+		manager.command("find")
+				.lazyArgument(String.class)
+				.executes((sender, args) -> sender.sendMessage("name " + ((Lazy<?>) args[0]).get()));
+		manager.command("find")
+				.argument(int.class)
+				.executes((sender, args) -> sender.sendMessage("id " + args[0]));
+
+		StubInvoker invoker = new StubInvoker();
+		manager.invokeCommand(invoker, "find", new String[] { "5" });
+		assertEquals("id 5", invoker.getLastMessage());
+		manager.invokeCommand(invoker, "find", new String[] { "alice" });
+		assertEquals("name alice", invoker.getLastMessage());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void fanOutArgumentsCantBeLazy() {
+		new CommandManager().registerHandler(new LazyTargetsHandler());
+	}
+
+	public static class LazyTargetsHandler implements CommandHandler {
+
+		@CommandProperties(command = "heal", description = "Heals players.", usage = "/heal <players>", fanOutArgument = 0)
+		public void heal(Object sender, Supplier<String> player) {
+
+		}
+
+	}
+
+	public static class LazyHandler implements CommandHandler {
+
+		private int paid = 0;
+
+		@CommandProperties(command = "pay", description = "Pays a player.", usage = "/pay <player> <amount>")
+		public void pay(Object sender, String player, Supplier<Integer> amount) {
+			if (player.equals("nobody")) return;
+			paid += amount.get() + amount.get();
+		}
+
+	}
+
+}
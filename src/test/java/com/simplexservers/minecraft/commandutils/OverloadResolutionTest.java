@@ -0,0 +1,99 @@
+package com.simplexservers.minecraft.commandutils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests resolving the overloads of a subcommand.
+ *
+ * @author Zach Abney
+ */
+public class OverloadResolutionTest {
+
+	private final OverloadHandler handler = new OverloadHandler();
+	private final CommandManager manager = new CommandManager();
+	private final StubInvoker invoker = new StubInvoker();
+
+	public OverloadResolutionTest() {
+		manager.registerHandler(handler);
+	}
+
+	@Test
+	public void fewerArgumentsPickLowerArity() {
+		assertTrue(manager.invokeCommand(invoker, "give", new String[] {"apple"}));
+		assertEquals("item apple", handler.lastCall);
+	}
+
+	@Test
+	public void exactArityIsPreferred() {
+		assertTrue(manager.invokeCommand(invoker, "give", new String[] {"apple", "3"}));
+		assertEquals("item apple x3", handler.lastCall);
+	}
+
+	@Test
+	public void extraArgumentsFallBackToHighestArity() {
+		assertTrue(manager.invokeCommand(invoker, "give", new String[] {"apple", "3", "extra"}));
+		assertEquals("item apple x3", handler.lastCall);
+	}
+
+	@Test
+	public void sameArityIsTieBrokenByParsing() {
+		assertTrue(manager.invokeCommand(invoker, "toggle", new String[] {"5"}));
+		assertEquals("toggle 5", handler.lastCall);
+		assertTrue(manager.invokeCommand(invoker, "toggle", new String[] {"on"}));
+		assertEquals("toggle true", handler.lastCall);
+	}
+
+	@Test
+	public void rawArgumentsMatchAnyOtherArity() {
+		assertTrue(manager.invokeCommand(invoker, "toggle", new String[] {"a", "b"}));
+		assertEquals("toggle raw 2", handler.lastCall);
+	}
+
+	@Test
+	public void notEnoughArgumentsShowsUsage() {
+		assertFalse(manager.invokeCommand(invoker, "give", new String[0]));
+		assertTrue(invoker.getLastMessage().endsWith("/give <item>"));
+	}
+
+	@Test
+	public void failedTieBreakReportsParseError() {
+		assertFalse(manager.invokeCommand(invoker, "give", new String[] {"apple", "three"}));
+		assertTrue(invoker.getLastMessage().startsWith("'three' must be a whole number."));
+	}
+
+	public static class OverloadHandler implements CommandHandler {
+
+		private String lastCall;
+
+		@CommandProperties(command = "give", description = "Gives an item.", usage = "/give <item>")
+		public void give(Object sender, String item) {
+			lastCall = "item " + item;
+		}
+
+		@CommandProperties(command = "give", description = "Gives an amount of an item.", usage = "/give <item> <amount>")
+		public void give(Object sender, String item, int amount) {
+			lastCall = "item " + item + " x" + amount;
+		}
+
+		@CommandProperties(command = "toggle", description = "Toggles by number.")
+		public void toggle(Object sender, int value) {
+			lastCall = "toggle " + value;
+		}
+
+		@CommandProperties(command = "toggle", description = "Toggles by state.")
+		public void toggle(Object sender, boolean value) {
+			lastCall = "toggle " + value;
+		}
+
+		@CommandProperties(command = "toggle", description = "Toggles by raw arguments.")
+		public void toggle(Object sender, String[] args) {
+			lastCall = "toggle raw " + args.length;
+		}
+
+	}
+
+}
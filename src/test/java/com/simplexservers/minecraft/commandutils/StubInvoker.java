@@ -0,0 +1,84 @@
+package com.simplexservers.minecraft.commandutils;
+
+/**
+ * A CommandInvoker stub that records the last message it was sent.
+ *
+ * @author Zach Abney
+ */
+public class StubInvoker extends CommandInvoker<Object> {
+
+	/**
+	 * The permission node the stub is missing, or null if it has every permission.
+	 */
+	private final String missingPermission;
+	/**
+	 * The amount of messages sent to the stub.
+	 */
+	private int messageCount;
+	/**
+	 * The last message sent to the stub.
+	 */
+	private String lastMessage;
+
+	/**
+	 * Constructs a new StubInvoker that has every permission.
+	 */
+	public StubInvoker() {
+		this(null);
+	}
+
+	/**
+	 * Constructs a new StubInvoker that is missing the given permission.
+	 *
+	 * @param missingPermission The permission node the stub is missing, or null if it has every permission.
+	 */
+	public StubInvoker(String missingPermission) {
+		this(new Object(), missingPermission);
+	}
+
+	/**
+	 * Constructs a new StubInvoker for the given native invoker that is missing the given permission.
+	 *
+	 * @param nativeInvoker The native instance of the invoker.
+	 * @param missingPermission The permission node the stub is missing, or null if it has every permission.
+	 */
+	public StubInvoker(Object nativeInvoker, String missingPermission) {
+		super(nativeInvoker);
+		this.missingPermission = missingPermission;
+	}
+
+	@Override
+	public void sendMessage(String message) {
+		messageCount++;
+		lastMessage = message;
+	}
+
+	@Override
+	public boolean hasPermission(String perm) {
+		return !perm.equals(missingPermission);
+	}
+
+	@Override
+	public boolean isPlayer() {
+		return false;
+	}
+
+	/**
+	 * Gets the amount of messages sent to the stub.
+	 *
+	 * @return The amount of messages sent.
+	 */
+	public int getMessageCount() {
+		return messageCount;
+	}
+
+	/**
+	 * Gets the last message sent to the stub.
+	 *
+	 * @return The last message sent, or null if none was sent.
+	 */
+	public String getLastMessage() {
+		return lastMessage;
+	}
+
+}
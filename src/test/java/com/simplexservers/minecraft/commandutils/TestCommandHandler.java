@@ -0,0 +1,75 @@
+package com.simplexservers.minecraft.commandutils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A CommandHandler covering each kind of dispatch the tests exercise.
+ *
+ * @author Zach Abney
+ */
+public class TestCommandHandler implements CommandHandler {
+
+	static {
+		ParameterType.registerParameterType(Target.class, Target::new);
+	}
+
+	/**
+	 * The amount of times the ping command was executed.
+	 */
+	public final AtomicInteger pings = new AtomicInteger();
+	/**
+	 * The running sum of the arguments passed to the add command.
+	 */
+	public final AtomicLong sum = new AtomicLong();
+	/**
+	 * The running sum of the name lengths of the targets passed to the greet command.
+	 */
+	public final AtomicLong greeted = new AtomicLong();
+
+	@CommandProperties(command = "ping", description = "Takes no arguments.")
+	public void ping(Object sender) {
+		pings.incrementAndGet();
+	}
+
+	@CommandProperties(command = "math add", description = "Takes numeric arguments.", usage = "/math add <int> <int>")
+	public void add(Object sender, int a, int b) {
+		sum.addAndGet(a + b);
+	}
+
+	@CommandProperties(command = "greet", description = "Takes a user defined argument.", usage = "/greet <target>")
+	public void greet(Object sender, Target target) {
+		greeted.addAndGet(target.getName().length());
+	}
+
+	/**
+	 * A user defined parameter type.
+	 */
+	public static class Target {
+
+		/**
+		 * The name of the target.
+		 */
+		private final String name;
+
+		/**
+		 * Constructs a new Target with the given name.
+		 *
+		 * @param name The name of the target.
+		 */
+		public Target(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * Gets the name of the target.
+		 *
+		 * @return The name of the target.
+		 */
+		public String getName() {
+			return name;
+		}
+
+	}
+
+}
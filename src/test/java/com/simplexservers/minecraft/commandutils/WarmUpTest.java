@@ -0,0 +1,70 @@
+package com.simplexservers.minecraft.commandutils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests warming up the dispatch paths of a CommandManager.
+ *
+ * @author Zach Abney
+ */
+public class WarmUpTest {
+
+	@Test
+	public void primesEveryCommandWithoutInvokingIt() {
+		TestCommandHandler handler = new TestCommandHandler();
+		CommandManager manager = new CommandManager();
+		manager.registerHandler(handler);
+		manager.registerHandler(new SampledHandler());
+
+		WarmUpReport report = manager.warmUp(10);
+
+		assertEquals(10, report.getIterations());
+		assertTrue(report.getPrimed().contains("ping"));
+		assertTrue(report.getPrimed().contains("math add 1 1"));
+		assertTrue(report.getPrimed().contains("sampled Notch"));
+		assertTrue(report.getSkipped().contains("greet")); // User defined parameter without samples
+		assertTrue(report.getFailed().contains("sampled not a number 1"));
+		assertEquals(0, handler.pings.get());
+		assertEquals(0, handler.sum.get());
+	}
+
+	@Test
+	public void primesTheCommandsVisibleThroughAnOverlay() {
+		TestCommandHandler handler = new TestCommandHandler();
+		CommandManager parent = new CommandManager();
+		parent.registerHandler(handler);
+		parent.lock();
+
+		CommandManager overlay = parent.createOverlay();
+		overlay.hideCommand("ping");
+		overlay.registerHandler(new CommandManagerOverlayTest.OverlayHandler());
+		overlay.lock();
+
+		WarmUpReport report = overlay.warmUp(5);
+
+		assertTrue(report.getPrimed().contains("math add 1 1"));
+		assertTrue(report.getPrimed().contains("math mul 1 1"));
+		assertFalse(report.getPrimed().contains("ping"));
+		assertTrue(report.getFailed().isEmpty());
+		assertEquals(0, handler.sum.get());
+	}
+
+	public static class SampledHandler implements CommandHandler {
+
+		@CommandProperties(command = "sampled", description = "Declares samples.", samples = {"Notch"})
+		public void sampled(Object sender, TestCommandHandler.Target target) {
+
+		}
+
+		@CommandProperties(command = "sampled not a number", description = "Declares a bad sample.", samples = {"1"})
+		public void notANumber(Object sender, boolean value) {
+
+		}
+
+	}
+
+}